@@ -116,10 +116,16 @@ public class SamplingAgent {
 		copyProperty(FORCE_OBJECT_NAME, DEFAULTS, LISTENER_PROPERTIES, false);
 		copyProperty(COMPOSITE_DELIMITER, DEFAULTS, LISTENER_PROPERTIES, PropertyNameBuilder.DEFAULT_COMPOSITE_DELIMITER);
 		copyProperty(USE_OBJECT_NAME_PROPERTIES, DEFAULTS, LISTENER_PROPERTIES, true);
+		copyProperty(MAX_TABULAR_ROWS, DEFAULTS, LISTENER_PROPERTIES, 0);
+		copyProperty(MAX_MBEAN_PROPERTIES, DEFAULTS, LISTENER_PROPERTIES, 0);
+		copyProperty(TABULAR_INDEX_NAMES, DEFAULTS, LISTENER_PROPERTIES, false);
 
 		copyProperty(FORCE_OBJECT_NAME, System.getProperties(), LISTENER_PROPERTIES);
 		copyProperty(COMPOSITE_DELIMITER, System.getProperties(), LISTENER_PROPERTIES);
 		copyProperty(USE_OBJECT_NAME_PROPERTIES, System.getProperties(), LISTENER_PROPERTIES);
+		copyProperty(MAX_TABULAR_ROWS, System.getProperties(), LISTENER_PROPERTIES);
+		copyProperty(MAX_MBEAN_PROPERTIES, System.getProperties(), LISTENER_PROPERTIES);
+		copyProperty(TABULAR_INDEX_NAMES, System.getProperties(), LISTENER_PROPERTIES);
 	}
 
 	private static boolean stopSampling = false;
@@ -218,6 +224,21 @@ public class SamplingAgent {
 					if (prop.length > 1) {
 						LISTENER_PROPERTIES.put(USE_OBJECT_NAME_PROPERTIES.pName(), prop[1]);
 					}
+				} else if (arg.startsWith(MAX_TABULAR_ROWS.pName() + "=")) {
+					String[] prop = arg.split("=", 2);
+					if (prop.length > 1) {
+						LISTENER_PROPERTIES.put(MAX_TABULAR_ROWS.pName(), prop[1]);
+					}
+				} else if (arg.startsWith(MAX_MBEAN_PROPERTIES.pName() + "=")) {
+					String[] prop = arg.split("=", 2);
+					if (prop.length > 1) {
+						LISTENER_PROPERTIES.put(MAX_MBEAN_PROPERTIES.pName(), prop[1]);
+					}
+				} else if (arg.startsWith(TABULAR_INDEX_NAMES.pName() + "=")) {
+					String[] prop = arg.split("=", 2);
+					if (prop.length > 1) {
+						LISTENER_PROPERTIES.put(TABULAR_INDEX_NAMES.pName(), prop[1]);
+					}
 				} else {
 					agentParams += agentParams.isEmpty() ? arg : "!" + arg;
 				}
@@ -103,6 +103,22 @@ public class AttributeSample {
 		return value;
 	}
 
+	/**
+	 * Assigns the value of the MBean attribute retrieved in bulk by
+	 * {@link MBeanServerConnection#getAttributes(ObjectName, String[])} call. No MBean server call is made.
+	 *
+	 * @param attr
+	 *            bulk retrieved MBean attribute
+	 * @return the value associated with the current attribute
+	 *
+	 * @see #sample()
+	 */
+	public Object sample(Attribute attr) {
+		value = attr.getValue();
+		timeStamp = Utils.currentTimeUsec();
+		return value;
+	}
+
 	private static String getValueFromException(Exception exc) throws Exception {
 		Throwable ct = exc;
 		if (exc instanceof RuntimeMBeanException) {
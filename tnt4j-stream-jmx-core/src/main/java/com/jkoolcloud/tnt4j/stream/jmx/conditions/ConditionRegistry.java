@@ -0,0 +1,185 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.stream.jmx.conditions;
+
+import java.util.*;
+
+import com.jkoolcloud.tnt4j.stream.jmx.core.SampleContext;
+
+/**
+ * <p>
+ * This class defines registry of attribute conditions and associated actions. Conditions implementing
+ * {@link IndexedCondition} are indexed by MBean object name and attribute name, so every attribute sample evaluates
+ * only conditions bound to that attribute and conditions that can't be indexed (object name patterns or custom
+ * {@link AttributeCondition} implementations). Conditions are evaluated in registration order.
+ * </p>
+ * Registry index is rebuilt on every registration change and is read without locking while evaluating samples.
+ *
+ * @see AttributeCondition
+ * @see IndexedCondition
+ * @version $Revision: 1 $
+ *
+ */
+public class ConditionRegistry {
+	private static final Entry[] NO_ENTRIES = new Entry[0];
+
+	private final Map<AttributeCondition, Entry> conditions = new LinkedHashMap<AttributeCondition, Entry>(89);
+	private volatile Index index = new Index();
+
+	/**
+	 * Registers condition and associated action. If condition is already registered, its action gets replaced.
+	 *
+	 * @param cond
+	 *            attribute condition
+	 * @param action
+	 *            action to run when condition evaluates to {@code true}
+	 */
+	public synchronized void register(AttributeCondition cond, AttributeAction action) {
+		Entry entry = conditions.get(cond);
+		if (entry == null) {
+			conditions.put(cond, new Entry(cond, action));
+			index = new Index(conditions.values());
+		} else {
+			entry.action = action;
+		}
+	}
+
+	/**
+	 * Removes all registered conditions.
+	 */
+	public synchronized void clear() {
+		conditions.clear();
+		index = new Index();
+	}
+
+	/**
+	 * Returns number of registered conditions.
+	 *
+	 * @return number of registered conditions
+	 */
+	public int size() {
+		return index.size;
+	}
+
+	/**
+	 * Evaluates conditions applicable to provided attribute sample and runs actions of conditions evaluated to
+	 * {@code true}.
+	 *
+	 * @param context
+	 *            current sample context
+	 * @param sample
+	 *            attribute sample to evaluate
+	 * @return number of invoked actions
+	 */
+	public int evaluate(SampleContext context, AttributeSample sample) {
+		Index idx = index;
+		if (idx.size == 0) {
+			return 0;
+		}
+		Entry[] indexed = idx.get(sample.getObjectName().getCanonicalName(), sample.getAttributeInfo().getName());
+		Entry[] generic = idx.generic;
+
+		// merge both arrays by registration order
+		int actionCount = 0;
+		int i = 0, g = 0;
+		while (i < indexed.length || g < generic.length) {
+			Entry entry;
+			if (g >= generic.length || (i < indexed.length && indexed[i].order < generic[g].order)) {
+				entry = indexed[i++];
+			} else {
+				entry = generic[g++];
+			}
+			if (entry.cond.evaluate(sample)) {
+				actionCount++;
+				entry.action.action(context, entry.cond, sample);
+			}
+		}
+		return actionCount;
+	}
+
+	private static boolean isIndexable(AttributeCondition cond) {
+		if (cond instanceof IndexedCondition) {
+			IndexedCondition iCond = (IndexedCondition) cond;
+			String objName = iCond.getObjectName();
+			return objName != null && iCond.getAttributeName() != null && objName.indexOf('*') < 0
+					&& objName.indexOf('?') < 0;
+		}
+		return false;
+	}
+
+	private static class Entry {
+		final AttributeCondition cond;
+		volatile AttributeAction action;
+		int order;
+
+		Entry(AttributeCondition cond, AttributeAction action) {
+			this.cond = cond;
+			this.action = action;
+		}
+	}
+
+	private static class Index {
+		final Map<String, Map<String, Entry[]>> byObjName = new HashMap<String, Map<String, Entry[]>>();
+		final Entry[] generic;
+		final int size;
+
+		Index() {
+			generic = NO_ENTRIES;
+			size = 0;
+		}
+
+		Index(Collection<Entry> entries) {
+			Map<String, Map<String, List<Entry>>> indexMap = new HashMap<String, Map<String, List<Entry>>>();
+			List<Entry> genericList = new ArrayList<Entry>();
+			int order = 0;
+			for (Entry entry : entries) {
+				entry.order = order++;
+				if (isIndexable(entry.cond)) {
+					IndexedCondition iCond = (IndexedCondition) entry.cond;
+					Map<String, List<Entry>> attrMap = indexMap.get(iCond.getObjectName());
+					if (attrMap == null) {
+						attrMap = new HashMap<String, List<Entry>>();
+						indexMap.put(iCond.getObjectName(), attrMap);
+					}
+					List<Entry> attrEntries = attrMap.get(iCond.getAttributeName());
+					if (attrEntries == null) {
+						attrEntries = new ArrayList<Entry>(2);
+						attrMap.put(iCond.getAttributeName(), attrEntries);
+					}
+					attrEntries.add(entry);
+				} else {
+					genericList.add(entry);
+				}
+			}
+
+			for (Map.Entry<String, Map<String, List<Entry>>> oe : indexMap.entrySet()) {
+				Map<String, Entry[]> attrMap = new HashMap<String, Entry[]>(oe.getValue().size());
+				for (Map.Entry<String, List<Entry>> ae : oe.getValue().entrySet()) {
+					attrMap.put(ae.getKey(), ae.getValue().toArray(new Entry[ae.getValue().size()]));
+				}
+				byObjName.put(oe.getKey(), attrMap);
+			}
+			generic = genericList.toArray(new Entry[genericList.size()]);
+			size = order;
+		}
+
+		Entry[] get(String objName, String attrName) {
+			Map<String, Entry[]> attrMap = byObjName.get(objName);
+			Entry[] entries = attrMap == null ? null : attrMap.get(attrName);
+			return entries == null ? NO_ENTRIES : entries;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.stream.jmx.conditions;
+
+/**
+ * <p>
+ * This interface defines a condition bound to single MBean attribute. Such conditions are indexed by
+ * {@link ConditionRegistry} and evaluated only for samples of matching MBean attribute.
+ * </p>
+ * 
+ * @see ConditionRegistry
+ * @version $Revision: 1 $
+ * 
+ */
+public interface IndexedCondition extends AttributeCondition {
+	/**
+	 * Canonical MBean object name this condition is bound to. Object name patterns are not indexed and evaluated for
+	 * every attribute sample.
+	 * 
+	 * @return canonical MBean object name
+	 */
+	String getObjectName();
+
+	/**
+	 * MBean attribute name this condition is bound to.
+	 * 
+	 * @return MBean attribute name
+	 */
+	String getAttributeName();
+}
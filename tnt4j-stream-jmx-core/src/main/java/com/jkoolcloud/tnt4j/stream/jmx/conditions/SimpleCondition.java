@@ -22,11 +22,12 @@ package com.jkoolcloud.tnt4j.stream.jmx.conditions;
  * </p>
  * 
  * @see AttributeCondition
+ * @see IndexedCondition
  * @see AttributeSample
  * @version $Revision: 1 $
  * 
  */
-public class SimpleCondition implements AttributeCondition {
+public class SimpleCondition implements IndexedCondition {
 	String name;
 	String objName;
 	String attrName;
@@ -63,6 +64,16 @@ public class SimpleCondition implements AttributeCondition {
 		return name;
 	}
 
+	@Override
+	public String getObjectName() {
+		return objName;
+	}
+
+	@Override
+	public String getAttributeName() {
+		return attrName;
+	}
+
 	@Override
 	public boolean evaluate(AttributeSample sample) {
 		if (sample.getAttributeInfo().getName().equals(attrName)
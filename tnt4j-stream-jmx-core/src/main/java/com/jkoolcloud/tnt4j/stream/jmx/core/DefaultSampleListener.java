@@ -17,15 +17,19 @@ package com.jkoolcloud.tnt4j.stream.jmx.core;
 
 import java.io.IOException;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.management.MBeanAttributeInfo;
 import javax.management.MBeanInfo;
 import javax.management.ObjectName;
 import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeType;
 import javax.management.openmbean.TabularData;
 
 import org.apache.commons.lang3.StringUtils;
@@ -55,17 +59,44 @@ public class DefaultSampleListener implements SampleListener {
 	public static final String STAT_USE_OBJ_NAME_PROPS = "listener.useObjectNameProperties.mode";
 	public static final String STAT_EXCLUDE_SET_COUNT = "listener.exclude.set.count";
 	public static final String STAT_SILENCE_SET_COUNT = "listener.silence.set.count";
+	public static final String STAT_COMPOSITE_PLANS_COUNT = "listener.composite.plans.count";
+	public static final String STAT_IDENTITY_PROPS_COUNT = "listener.identity.props.count";
+	public static final String STAT_MAX_TABULAR_ROWS = "listener.maxTabularRows.limit";
+	public static final String STAT_MAX_MBEAN_PROPERTIES = "listener.maxMBeanProperties.limit";
+	public static final String STAT_TABULAR_INDEX_NAMES = "listener.tabularIndexNames.mode";
+	public static final String STAT_TRUNCATED_ROWS_COUNT = "listener.truncated.rows.count";
+	public static final String STAT_TRUNCATED_PROPS_COUNT = "listener.truncated.properties.count";
+
+	private static final int MAX_COMPOSITE_PLANS = 1024;
 
 	boolean forceObjectName = false;
 	String compositeDelimiter = null;
 	boolean useObjectNameProperties = true;
+	int maxTabularRows = 0;
+	int maxMBeanProperties = 0;
+	boolean tabularIndexNames = false;
 
-	Collection<MBeanAttributeInfo> excAttrs = new HashSet<MBeanAttributeInfo>(89);
-	Collection<MBeanAttributeInfo> silenceAttrs = new HashSet<MBeanAttributeInfo>(89);
+	private final AtomicLong truncatedRows = new AtomicLong();
+	private final AtomicLong truncatedProps = new AtomicLong();
 
-	private PropertyNameBuilder pnb;
+	/**
+	 * @deprecated not used anymore: property name builders are confined to sampling threads, so no locking is
+	 *             required to build property names. Kept for compatibility of extending listeners.
+	 */
+	@Deprecated
 	protected final ReentrantLock buildLock = new ReentrantLock();
 
+	Collection<MBeanAttributeInfo> excAttrs = Collections
+			.newSetFromMap(new ConcurrentHashMap<MBeanAttributeInfo, Boolean>(89));
+	Collection<MBeanAttributeInfo> silenceAttrs = Collections
+			.newSetFromMap(new ConcurrentHashMap<MBeanAttributeInfo, Boolean>(89));
+
+	private final ThreadLocal<PropertyNameBuilder> pnb = new ThreadLocal<PropertyNameBuilder>();
+	private final Map<ObjectName, IdentityProperties> identityProps = new ConcurrentHashMap<ObjectName, IdentityProperties>(
+			256);
+	private final Map<CompositeType, CompositePlan> compositePlans = new ConcurrentHashMap<CompositeType, CompositePlan>(
+			64);
+
 	/**
 	 * Create an instance of {@code DefaultSampleListener} with a a given print stream and configuration properties.
 	 *
@@ -81,6 +112,11 @@ public class DefaultSampleListener implements SampleListener {
 				compositeDelimiter);
 		this.useObjectNameProperties = Utils.getBoolean(ListenerProperties.USE_OBJECT_NAME_PROPERTIES.pName(),
 				properties, useObjectNameProperties);
+		this.maxTabularRows = Utils.getInt(ListenerProperties.MAX_TABULAR_ROWS.pName(), properties, maxTabularRows);
+		this.maxMBeanProperties = Utils.getInt(ListenerProperties.MAX_MBEAN_PROPERTIES.pName(), properties,
+				maxMBeanProperties);
+		this.tabularIndexNames = Utils.getBoolean(ListenerProperties.TABULAR_INDEX_NAMES.pName(), properties,
+				tabularIndexNames);
 	}
 
 	/**
@@ -146,54 +182,57 @@ public class DefaultSampleListener implements SampleListener {
 	public void post(SampleContext context, AttributeSample sample) throws UnsupportedAttributeException {
 		MBeanAttributeInfo mbAttrInfo = sample.getAttributeInfo();
 		PropertySnapshot snapshot = sample.getSnapshot();
-		buildLock.lock();
-		try {
-			processAttrValue(snapshot, mbAttrInfo, initPropName(mbAttrInfo.getName()), sample.get());
-		} finally {
-			buildLock.unlock();
-		}
+		processAttrValue(snapshot, mbAttrInfo, initPropName(mbAttrInfo.getName()), sample.get());
 	}
 
 	@Override
 	public void complete(SampleContext context, Activity activity, ObjectName name, MBeanInfo info, Snapshot snapshot) {
-		forceObjectNameAttribute(name, snapshot);
+		IdentityProperties idProps = getIdentityProperties(name);
+		forceObjectNameAttribute(idProps, snapshot);
 		if (useObjectNameProperties) {
-			objNamePropsToSnapshot(name, snapshot);
+			objNamePropsToSnapshot(idProps, snapshot);
 		}
 	}
 
-	private void forceObjectNameAttribute(ObjectName name, Snapshot snapshot) {
-		snapshot.add(Utils.OBJ_NAME_OBJ_PROP, name, true);
+	private void forceObjectNameAttribute(IdentityProperties idProps, Snapshot snapshot) {
+		snapshot.add(idProps.objNameObjProp);
 		Property objNameProp = Utils.getSnapPropertyIgnoreCase(snapshot, Utils.OBJ_NAME_PROP);
 
 		if (objNameProp == null) {
-			buildLock.lock();
-			try {
-				snapshot.add(Utils.OBJ_NAME_PROP, name, !forceObjectName);
-			} finally {
-				buildLock.unlock();
-			}
+			snapshot.add(idProps.objNameProp);
 		}
 	}
 
-	private void objNamePropsToSnapshot(ObjectName name, Snapshot snapshot) {
-		Map<String, String> objNameProps = name.getKeyPropertyList();
-
-		buildLock.lock();
-		try {
-			for (Map.Entry<String, String> objNameProp : objNameProps.entrySet()) {
-				Property p = snapshot.get(objNameProp.getKey());
-				// p = Utils.getSnapPropertyIgnoreCase(snapshot, objNameProp.getKey());
-				if (p != null && isSameValue(p.getValue(), objNameProp.getValue())) {
-					continue;
-				}
-				snapshot.add(objNameProp.getKey() + (p == null ? "" : "_"), objNameProp.getValue());
+	private static void objNamePropsToSnapshot(IdentityProperties idProps, Snapshot snapshot) {
+		for (int i = 0; i < idProps.keyProps.length; i++) {
+			Property kp = idProps.keyProps[i];
+			Property p = snapshot.get(kp.getKey());
+			// p = Utils.getSnapPropertyIgnoreCase(snapshot, kp.getKey());
+			if (p == null) {
+				snapshot.add(kp);
+			} else if (!isSameValue(p.getValue(), kp.getValue())) {
+				snapshot.add(idProps.dupKeyProps[i]);
 			}
-		} finally {
-			buildLock.unlock();
 		}
 	}
 
+	/**
+	 * Returns MBean identity properties block, made of MBean object name and its key properties. Block is made once
+	 * MBean gets registered and is cached until MBean gets unregistered.
+	 *
+	 * @param name
+	 *            MBean object name
+	 * @return MBean identity properties block
+	 */
+	private IdentityProperties getIdentityProperties(ObjectName name) {
+		IdentityProperties idProps = identityProps.get(name);
+		if (idProps == null) {
+			idProps = new IdentityProperties(name, forceObjectName);
+			identityProps.put(name, idProps);
+		}
+		return idProps;
+	}
+
 	private static boolean isSameValue(Object v1, Object v2) {
 		return Utils.equal(v1, v2) || String.valueOf(v1).equals(String.valueOf(v2));
 	}
@@ -243,16 +282,25 @@ public class DefaultSampleListener implements SampleListener {
 		stats.put(STAT_USE_OBJ_NAME_PROPS, useObjectNameProperties);
 		stats.put(STAT_EXCLUDE_SET_COUNT, excAttrs.size());
 		stats.put(STAT_SILENCE_SET_COUNT, silenceAttrs.size());
+		stats.put(STAT_COMPOSITE_PLANS_COUNT, compositePlans.size());
+		stats.put(STAT_IDENTITY_PROPS_COUNT, identityProps.size());
+		stats.put(STAT_MAX_TABULAR_ROWS, maxTabularRows);
+		stats.put(STAT_MAX_MBEAN_PROPERTIES, maxMBeanProperties);
+		stats.put(STAT_TABULAR_INDEX_NAMES, tabularIndexNames);
+		stats.put(STAT_TRUNCATED_ROWS_COUNT, truncatedRows.get());
+		stats.put(STAT_TRUNCATED_PROPS_COUNT, truncatedProps.get());
 	}
 
 	@Override
 	public void register(SampleContext context, ObjectName oName) {
 		LOGGER.log(OpLevel.DEBUG, "Register mbean: {0}, mbean.server={1}", oName, context.getMBeanServer());
+		getIdentityProperties(oName);
 	}
 
 	@Override
 	public void unregister(SampleContext context, ObjectName oName) {
 		LOGGER.log(OpLevel.DEBUG, "Un-register mbean: {0}, mbean.server={1}", oName, context.getMBeanServer());
+		identityProps.remove(oName);
 	}
 
 	@Override
@@ -277,40 +325,109 @@ public class DefaultSampleListener implements SampleListener {
 			PropertyNameBuilder propName, Object value) {
 		if (value instanceof CompositeData) {
 			CompositeData cdata = (CompositeData) value;
-			Set<String> keys = cdata.getCompositeType().keySet();
-			boolean isKVSet = keys.contains("key") && keys.contains("value"); // NON-NLS
-			for (String key : keys) {
-				Object cVal = cdata.get(key);
-				if (isKVSet && "key".equals(key)) {
-					propName.append(Utils.toString(cVal));
-				} else if (isKVSet && "value".equals(key)) {
-					processAttrValue(snapshot, mbAttrInfo, propName, cVal);
-				} else {
-					processAttrValue(snapshot, mbAttrInfo, propName.append(key), cVal);
+			CompositePlan plan = getCompositePlan(cdata.getCompositeType(), propName);
+			Object[] cVals = cdata.getAll(plan.itemNames);
+			for (int i = 0; i < cVals.length; i++) {
+				switch (plan.itemRoles[i]) {
+				case CompositePlan.ROLE_KEY:
+					propName.append(Utils.toString(cVals[i]));
+					break;
+				case CompositePlan.ROLE_VALUE:
+					processAttrValue(snapshot, mbAttrInfo, propName, cVals[i]);
+					break;
+				default:
+					processAttrValue(snapshot, mbAttrInfo, propName.appendToken(plan.itemTokens[i]), cVals[i]);
 				}
 			}
 			propName.popLevel();
 		} else if (value instanceof TabularData) {
 			TabularData tData = (TabularData) value;
 			Collection<?> values = tData.values();
+			List<String> indexNames = tabularIndexNames ? tData.getTabularType().getIndexNames() : null;
 			int row = 0;
 			for (Object tVal : values) {
-				processAttrValue(snapshot, mbAttrInfo,
-						tVal instanceof CompositeData ? propName : propName.append(padNumber(++row)), tVal);
+				if (maxTabularRows > 0 && row >= maxTabularRows) {
+					truncatedRows.addAndGet(values.size() - row);
+					break;
+				}
+				row++;
+				if (tVal instanceof CompositeData) {
+					processAttrValue(snapshot, mbAttrInfo, appendRowName(propName, (CompositeData) tVal, indexNames),
+							tVal);
+				} else {
+					processAttrValue(snapshot, mbAttrInfo, propName.append(padNumber(row)), tVal);
+				}
 			}
 			propName.popLevel();
+		} else if (maxMBeanProperties > 0 && snapshot.size() >= maxMBeanProperties) {
+			propName.popLevel();
+			truncatedProps.incrementAndGet();
 		} else {
 			snapshot.add(propName.propString(), value);
 		}
 		return snapshot;
 	}
 
+	/**
+	 * Appends tabular data row name, made of row index items values, to property name. Row name is appended only if
+	 * index names are provided and row is not key/value set (key/value set rows are named by key item value).
+	 *
+	 * @param propName
+	 *            property name builder
+	 * @param row
+	 *            tabular data row
+	 * @param indexNames
+	 *            tabular type index names, {@code null} - if rows shall not be named by index
+	 * @return property name builder instance
+	 */
+	private PropertyNameBuilder appendRowName(PropertyNameBuilder propName, CompositeData row,
+			List<String> indexNames) {
+		if (indexNames == null || indexNames.isEmpty()
+				|| getCompositePlan(row.getCompositeType(), propName).isKVSet) {
+			return propName;
+		}
+
+		StringBuilder rowName = new StringBuilder(32);
+		for (Object iVal : row.getAll(indexNames.toArray(new String[indexNames.size()]))) {
+			if (rowName.length() > 0) {
+				rowName.append(',');
+			}
+			rowName.append(Utils.toString(iVal));
+		}
+		return propName.append(rowName.toString());
+	}
+
+	/**
+	 * Returns flattening plan of provided composite type. Plans are cached per composite type, so composite type items
+	 * are resolved, ordered and tokenized only once.
+	 *
+	 * @param cType
+	 *            composite type
+	 * @param propName
+	 *            property name builder used to make item tokens
+	 * @return composite type flattening plan
+	 */
+	private CompositePlan getCompositePlan(CompositeType cType, PropertyNameBuilder propName) {
+		CompositePlan plan = compositePlans.get(cType);
+		if (plan == null) {
+			plan = new CompositePlan(cType, propName);
+			if (compositePlans.size() >= MAX_COMPOSITE_PLANS) {
+				compositePlans.clear();
+			}
+			compositePlans.put(cType, plan);
+		}
+		return plan;
+	}
+
 	private static String padNumber(int idx) {
 		return idx < 10 ? "0" + idx : String.valueOf(idx);
 	}
 
 	/**
 	 * Initializes (creates or resets) property name builder with provided property name string.
+	 * <p>
+	 * Property name builder instance is confined to calling thread, so attributes can be sampled by multiple threads
+	 * concurrently without any locking.
 	 *
 	 * @param propName
 	 *            property name string
@@ -319,13 +436,15 @@ public class DefaultSampleListener implements SampleListener {
 	 * @see #createPropName(String)
 	 */
 	protected PropertyNameBuilder initPropName(String propName) {
-		if (pnb == null) {
-			pnb = createPropName(propName);
+		PropertyNameBuilder builder = pnb.get();
+		if (builder == null) {
+			builder = createPropName(propName);
+			pnb.set(builder);
 		} else {
-			pnb.reset(propName);
+			builder.reset(propName);
 		}
 
-		return pnb;
+		return builder;
 	}
 
 	/**
@@ -340,6 +459,66 @@ public class DefaultSampleListener implements SampleListener {
 				: new PropertyNameBuilder(propName);
 	}
 
+	/**
+	 * MBean identity properties block: object name properties and object name key properties, made once per MBean and
+	 * added to every MBean sample snapshot by reference.
+	 */
+	private static class IdentityProperties {
+		private final Property objNameObjProp;
+		private final Property objNameProp;
+		private final Property[] keyProps;
+		private final Property[] dupKeyProps;
+
+		IdentityProperties(ObjectName name, boolean forceObjectName) {
+			objNameObjProp = new Property(Utils.OBJ_NAME_OBJ_PROP, name, true);
+			objNameProp = new Property(Utils.OBJ_NAME_PROP, name, !forceObjectName);
+
+			Map<String, String> objNameProps = name.getKeyPropertyList();
+			keyProps = new Property[objNameProps.size()];
+			dupKeyProps = new Property[objNameProps.size()];
+			int i = 0;
+			for (Map.Entry<String, String> objNameProp : objNameProps.entrySet()) {
+				keyProps[i] = new Property(objNameProp.getKey(), objNameProp.getValue());
+				dupKeyProps[i] = new Property(objNameProp.getKey() + "_", objNameProp.getValue());
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * Composite type flattening plan: ordered composite type item names, their roles and property name tokens.
+	 */
+	private static class CompositePlan {
+		static final byte ROLE_ITEM = 0;
+		static final byte ROLE_KEY = 1;
+		static final byte ROLE_VALUE = 2;
+
+		private final String[] itemNames;
+		private final byte[] itemRoles;
+		private final String[] itemTokens;
+		private final boolean isKVSet;
+
+		CompositePlan(CompositeType cType, PropertyNameBuilder propName) {
+			Set<String> keys = cType.keySet();
+			isKVSet = keys.contains("key") && keys.contains("value"); // NON-NLS
+
+			itemNames = keys.toArray(new String[keys.size()]);
+			itemRoles = new byte[itemNames.length];
+			itemTokens = new String[itemNames.length];
+			for (int i = 0; i < itemNames.length; i++) {
+				String key = itemNames[i];
+				if (isKVSet && "key".equals(key)) { // NON-NLS
+					itemRoles[i] = ROLE_KEY;
+				} else if (isKVSet && "value".equals(key)) { // NON-NLS
+					itemRoles[i] = ROLE_VALUE;
+				} else {
+					itemRoles[i] = ROLE_ITEM;
+					itemTokens[i] = propName.toToken(key);
+				}
+			}
+		}
+	}
+
 	/**
 	 * Sample listener configuration properties enumeration.
 	 */
@@ -357,7 +536,20 @@ public class DefaultSampleListener implements SampleListener {
 		 * Flag indicating to copy MBean {@link javax.management.ObjectName} contained properties into sample snapshot
 		 * properties.
 		 */
-		USE_OBJECT_NAME_PROPERTIES("useObjectNameProperties");
+		USE_OBJECT_NAME_PROPERTIES("useObjectNameProperties"),
+		/**
+		 * Max number of tabular type MBean attribute value rows to be sampled. {@code 0} - unlimited.
+		 */
+		MAX_TABULAR_ROWS("maxTabularRows"),
+		/**
+		 * Max number of sample snapshot properties (including flattened composite/tabular values) of single MBean.
+		 * {@code 0} - unlimited.
+		 */
+		MAX_MBEAN_PROPERTIES("maxMBeanProperties"),
+		/**
+		 * Flag indicating to name tabular type MBean attribute value rows by values of tabular type index items.
+		 */
+		TABULAR_INDEX_NAMES("tabularIndexNames");
 
 		private String pName;
 		private String apName;
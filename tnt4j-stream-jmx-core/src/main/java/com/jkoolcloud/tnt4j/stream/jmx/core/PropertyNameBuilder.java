@@ -89,14 +89,40 @@ public class PropertyNameBuilder {
 	 * @return instance of this property name builder
 	 */
 	public PropertyNameBuilder append(String str) {
+		return appendToken(checkPropertyName(str));
+	}
+
+	/**
+	 * Appends provided token to current property name in internal {@link StringBuilder}, same way as
+	 * {@link #append(String)} does, but token string is appended as is, without replacing delimiter symbols.
+	 * <p>
+	 * Use {@link #toToken(String)} to make token string from property name string.
+	 *
+	 * @param token
+	 *            token string to append to property name
+	 * @return instance of this property name builder
+	 */
+	public PropertyNameBuilder appendToken(String token) {
 		marks.push(sb.length());
 		if (!isEmpty()) {
 			sb.append(delimiter);
 		}
-		sb.append(checkPropertyName(str));
+		sb.append(token);
 		return this;
 	}
 
+	/**
+	 * Makes token string from provided property name string, by replacing delimiter symbols within it. Made token can
+	 * be reused and appended using {@link #appendToken(String)}.
+	 *
+	 * @param str
+	 *            property name string
+	 * @return token string
+	 */
+	public String toToken(String str) {
+		return checkPropertyName(str);
+	}
+
 	/**
 	 * Resets internal {@link StringBuilder} to marked position of previous token. If marks stack is empty - nothing
 	 * happens, leaving initial property name string in string builder.
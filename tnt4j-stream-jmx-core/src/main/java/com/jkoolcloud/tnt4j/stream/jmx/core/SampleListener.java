@@ -59,9 +59,13 @@ public interface SampleListener {
 	void unregister(SampleContext context, ObjectName oname);
 
 	/**
-	 * This method is called before each attribute is sampled. Throw a runtime exception if you want all further samples
-	 * to halt. Set {@link AttributeSample#excludeNext(boolean)} to {@code true} to skip sampling this attribute. Set
+	 * This method is called for each MBean attribute when MBean sampling plan is compiled, to decide whether attribute
+	 * shall be sampled. Throw a runtime exception if you want all further samples to halt. Set
+	 * {@link AttributeSample#excludeNext(boolean)} to {@code true} to skip sampling this attribute. Set
 	 * {@link AttributeSample#silence(boolean)} to {@code true} to suppress exception trace printing for this attribute.
+	 * <p>
+	 * Pre-sampling decisions are cached within MBean sampling plan, so this method is called again for the same
+	 * attribute only when plan gets recompiled: attribute gets excluded or silenced, or listeners set changes.
 	 * 
 	 * @param context
 	 *            current sample context
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jkoolcloud.tnt4j.stream.jmx.format;
+
+import java.util.List;
+
+import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
+
+/**
+ * This interface defines streaming event formatter able to split formatted activity output into size bounded chunks
+ * (batches), each of them to be written by sink as single write operation.
+ *
+ * @version $Revision: 1 $
+ *
+ * @see com.jkoolcloud.tnt4j.stream.jmx.sink.ChannelEventSink
+ */
+public interface BatchingFormatter extends StreamingFormatter {
+	/**
+	 * Format a given {@link TrackingActivity} into provided string builder and split formatted output into size bounded
+	 * batches. Batch boundaries never split single formatted record (line).
+	 *
+	 * @param activity
+	 *            tracking activity instance to be formatted
+	 * @param out
+	 *            string builder to append
+	 * @return list of formatted output batches, backed by provided string builder
+	 */
+	List<CharSequence> formatBatches(TrackingActivity activity, StringBuilder out);
+}
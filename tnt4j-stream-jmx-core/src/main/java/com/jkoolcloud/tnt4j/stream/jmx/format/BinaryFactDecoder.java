@@ -0,0 +1,292 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jkoolcloud.tnt4j.stream.jmx.format;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class implements decoder of {@link BinaryFactFormatter} produced binary output. Decoder resolves dictionary
+ * entries and returns decoded samples and messages as {@link Record} instances.
+ * <p>
+ * Running this class as application decodes provided files (or standard input, if no files provided) and prints
+ * decoded records in {@code "path,key1=value1,...,keyN=valueN"} form to standard output.
+ *
+ * @version $Revision: 1 $
+ *
+ * @see BinaryFactFormatter
+ */
+public class BinaryFactDecoder {
+	private final InputStream in;
+	private final List<String> dictionary = new ArrayList<String>(1024);
+
+	/**
+	 * Constructs a new BinaryFactDecoder.
+	 *
+	 * @param in
+	 *            input stream to decode
+	 */
+	public BinaryFactDecoder(InputStream in) {
+		this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in);
+	}
+
+	/**
+	 * Reads and decodes next sample or message record. Segment and dictionary records are consumed internally.
+	 *
+	 * @return decoded record, or {@code null} if end of stream is reached
+	 * @throws IOException
+	 *             if I/O error occurs while reading or stream is malformed
+	 */
+	public Record read() throws IOException {
+		while (true) {
+			int type = in.read();
+			switch (type) {
+			case -1:
+				return null;
+			case BinaryFactFormatter.REC_SEGMENT:
+				int version = readByte();
+				if (version != BinaryFactFormatter.FORMAT_VERSION) {
+					throw new IOException("Unsupported format version: " + version);
+				}
+				dictionary.clear();
+				break;
+			case BinaryFactFormatter.REC_DICT:
+				int id = readVarInt();
+				if (id != dictionary.size()) {
+					throw new IOException("Unexpected dictionary id: " + id + ", expected " + dictionary.size());
+				}
+				dictionary.add(readString());
+				break;
+			case BinaryFactFormatter.REC_SAMPLE:
+				String path = getPath(readVarInt());
+				long time = unZigZag(readVarLong());
+				int count = readVarInt();
+				Map<String, Object> values = new LinkedHashMap<String, Object>(count * 2);
+				for (int i = 0; i < count; i++) {
+					String key = getPath(readVarInt());
+					values.put(key, readValue());
+				}
+				return new Record(path, time, values, null, null);
+			case BinaryFactFormatter.REC_MESSAGE:
+				long mTime = unZigZag(readVarLong());
+				String level = readString();
+				return new Record(null, mTime, null, level, readString());
+			default:
+				throw new IOException("Unknown record type: " + type);
+			}
+		}
+	}
+
+	private String getPath(int id) throws IOException {
+		if (id < 0 || id >= dictionary.size()) {
+			throw new IOException("Unknown dictionary id: " + id);
+		}
+		return dictionary.get(id);
+	}
+
+	private Object readValue() throws IOException {
+		int type = readByte();
+		switch (type) {
+		case BinaryFactFormatter.VAL_NULL:
+			return null;
+		case BinaryFactFormatter.VAL_FALSE:
+			return Boolean.FALSE;
+		case BinaryFactFormatter.VAL_TRUE:
+			return Boolean.TRUE;
+		case BinaryFactFormatter.VAL_LONG:
+			return unZigZag(readVarLong());
+		case BinaryFactFormatter.VAL_FLOAT:
+			return Float.intBitsToFloat((int) readFixed(4));
+		case BinaryFactFormatter.VAL_DOUBLE:
+			return Double.longBitsToDouble(readFixed(8));
+		case BinaryFactFormatter.VAL_STRING:
+			return readString();
+		default:
+			throw new IOException("Unknown value type: " + type);
+		}
+	}
+
+	private int readByte() throws IOException {
+		int b = in.read();
+		if (b < 0) {
+			throw new EOFException();
+		}
+		return b;
+	}
+
+	private long readFixed(int bytes) throws IOException {
+		long value = 0;
+		for (int i = 0; i < bytes; i++) {
+			value = (value << 8) | readByte();
+		}
+		return value;
+	}
+
+	private int readVarInt() throws IOException {
+		return (int) readVarLong();
+	}
+
+	private long readVarLong() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	private String readString() throws IOException {
+		int length = readVarInt();
+		byte[] bytes = new byte[length];
+		int off = 0;
+		while (off < length) {
+			int n = in.read(bytes, off, length - off);
+			if (n < 0) {
+				throw new EOFException();
+			}
+			off += n;
+		}
+		return new String(bytes, BinaryFactFormatter.UTF8);
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Decodes provided files (or standard input, if no files provided) and prints decoded records to standard output.
+	 *
+	 * @param args
+	 *            binary files to decode
+	 * @throws IOException
+	 *             if I/O error occurs while decoding
+	 */
+	public static void main(String... args) throws IOException {
+		if (args.length == 0) {
+			print(new BinaryFactDecoder(System.in), System.out);
+		} else {
+			for (String fileName : args) {
+				InputStream fis = new FileInputStream(fileName);
+				try {
+					print(new BinaryFactDecoder(fis), System.out);
+				} finally {
+					fis.close();
+				}
+			}
+		}
+		System.out.flush();
+	}
+
+	private static void print(BinaryFactDecoder decoder, PrintStream out) throws IOException {
+		Record rec;
+		while ((rec = decoder.read()) != null) {
+			out.println(rec);
+		}
+	}
+
+	/**
+	 * Decoded sample or message record.
+	 */
+	public static class Record {
+		private final String path;
+		private final long timeUsec;
+		private final Map<String, Object> values;
+		private final String level;
+		private final String message;
+
+		Record(String path, long timeUsec, Map<String, Object> values, String level, String message) {
+			this.path = path;
+			this.timeUsec = timeUsec;
+			this.values = values;
+			this.level = level;
+			this.message = message;
+		}
+
+		/**
+		 * Returns whether this record is message record.
+		 *
+		 * @return {@code true} if record is message record, {@code false} - if sample record
+		 */
+		public boolean isMessage() {
+			return values == null;
+		}
+
+		/**
+		 * Returns sample record path, e.g. {@code "OBJ:Streams\source\Activities"}.
+		 *
+		 * @return sample record path, or {@code null} for message record
+		 */
+		public String getPath() {
+			return path;
+		}
+
+		/**
+		 * Returns record timestamp in microseconds.
+		 *
+		 * @return record timestamp in microseconds
+		 */
+		public long getTimeUsec() {
+			return timeUsec;
+		}
+
+		/**
+		 * Returns sample values map, keyed by property key path.
+		 *
+		 * @return sample values map, or {@code null} for message record
+		 */
+		public Map<String, Object> getValues() {
+			return values;
+		}
+
+		/**
+		 * Returns message record severity level.
+		 *
+		 * @return message severity level, or {@code null} for sample record
+		 */
+		public String getLevel() {
+			return level;
+		}
+
+		/**
+		 * Returns message record text.
+		 *
+		 * @return message text, or {@code null} for sample record
+		 */
+		public String getMessage() {
+			return message;
+		}
+
+		@Override
+		public String toString() {
+			if (isMessage()) {
+				return "time.usec=" + timeUsec + ",level=" + level + ",msg=\"" + message + "\"";
+			}
+			StringBuilder sb = new StringBuilder(256).append(path);
+			for (Map.Entry<String, Object> ve : values.entrySet()) {
+				sb.append(FactNameValueFormatter.FIELD_SEP).append(ve.getKey()).append(FactNameValueFormatter.EQ)
+						.append(ve.getValue());
+			}
+			return sb.toString();
+		}
+	}
+}
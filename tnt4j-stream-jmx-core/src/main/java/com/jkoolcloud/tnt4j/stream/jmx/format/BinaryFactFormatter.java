@@ -0,0 +1,303 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jkoolcloud.tnt4j.stream.jmx.format;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.core.Property;
+import com.jkoolcloud.tnt4j.core.Snapshot;
+import com.jkoolcloud.tnt4j.core.UsecTimestamp;
+import com.jkoolcloud.tnt4j.source.Source;
+import com.jkoolcloud.tnt4j.stream.jmx.utils.Utils;
+import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
+import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
+
+/**
+ * This class provides dictionary encoded compact binary formatting for tnt4j activities, events and snapshots. Every
+ * distinct record path (e.g. {@code "OBJ:Streams\source\Activities"}) and property key path (e.g.
+ * {@code "java.lang\Memory\HeapMemoryUsage\max"}), made same way as {@link FactPathValueFormatter} does, is assigned
+ * numeric id on first use, and dictionary entry binding id to path is written only once per output segment. Property
+ * values are then written as {@code (varint id, typed value)} pairs, with primitive values encoded natively.
+ * <p>
+ * Output is stream of records, each starting with record type byte:
+ * <ul>
+ * <li>{@value #REC_SEGMENT} - segment start, followed by format version byte. Dictionary is cleared.</li>
+ * <li>{@value #REC_DICT} - dictionary entry: {@code varint id, string path}.</li>
+ * <li>{@value #REC_SAMPLE} - sample: {@code varint path id, varlong timestamp usec, varint values count}, followed by
+ * values count of {@code (varint key id, typed value)} pairs.</li>
+ * <li>{@value #REC_MESSAGE} - message: {@code varlong timestamp usec, string level, string message}.</li>
+ * </ul>
+ * Strings are written as {@code varint bytes count} followed by UTF-8 bytes. Typed value is type byte followed by
+ * value bytes: {@value #VAL_NULL} - {@code null}, {@value #VAL_FALSE}/{@value #VAL_TRUE} - boolean,
+ * {@value #VAL_LONG} - zig-zag encoded varlong, {@value #VAL_FLOAT} - 4 bytes IEEE 754 float, {@value #VAL_DOUBLE} - 8
+ * bytes IEEE 754 double, {@value #VAL_STRING} - string.
+ * <p>
+ * Dictionary size is bounded by configuration (cfg. key {@code "MaxDictionarySize"}, default value
+ * {@value #DEFAULT_MAX_DICTIONARY_SIZE}): when sample being written needs new dictionary entry over the bound, new
+ * segment is started and sample is written again within it. Only single sample having more distinct paths than bound
+ * can grow dictionary of its own segment beyond the bound. Formatter instance keeps single dictionary, so it must not
+ * be shared among multiple sinks. If formatted bytes fail to reach receiver, {@link #reset()} must be called, so
+ * dictionary entries are written again in new segment.
+ * <p>
+ * {@link String} producing format methods are inherited from {@link FactPathValueFormatter} and are used by sinks not
+ * supporting binary output.
+ *
+ * @version $Revision: 1 $
+ *
+ * @see BinaryFactDecoder
+ * @see com.jkoolcloud.tnt4j.stream.jmx.sink.ChannelEventSink
+ */
+public class BinaryFactFormatter extends FactPathValueFormatter implements BinaryFormatter {
+	public static final int FORMAT_VERSION = 1;
+	public static final int DEFAULT_MAX_DICTIONARY_SIZE = 64 * 1024;
+
+	public static final byte REC_SEGMENT = 'R';
+	public static final byte REC_DICT = 'D';
+	public static final byte REC_SAMPLE = 'S';
+	public static final byte REC_MESSAGE = 'M';
+
+	public static final byte VAL_NULL = 0;
+	public static final byte VAL_FALSE = 1;
+	public static final byte VAL_TRUE = 2;
+	public static final byte VAL_LONG = 3;
+	public static final byte VAL_FLOAT = 4;
+	public static final byte VAL_DOUBLE = 5;
+	public static final byte VAL_STRING = 6;
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int MAX_RETAINED_VALUES_SIZE = 1024 * 1024;
+
+	private int maxDictionarySize = DEFAULT_MAX_DICTIONARY_SIZE;
+	private final Map<String, Integer> dictionary = new HashMap<String, Integer>(1024);
+	private boolean segmentStarted = false;
+	private ByteArrayOutputStream valuesOut = new ByteArrayOutputStream(8192);
+
+	public BinaryFactFormatter() {
+		super();
+	}
+
+	@Override
+	public synchronized void reset() {
+		dictionary.clear();
+		segmentStarted = false;
+	}
+
+	@Override
+	public synchronized void format(TrackingActivity activity, ByteArrayOutputStream out) {
+		StringBuilder path = new StringBuilder(128).append("OBJ:Streams");
+		toString(path, activity.getSource()).append(PATH_DELIM).append("Activities");
+		writeSample(out, path.toString(), activity.getStartTime(), getSnapshots(activity));
+	}
+
+	@Override
+	public synchronized void format(TrackingEvent event, ByteArrayOutputStream out) {
+		StringBuilder path = new StringBuilder(128).append("OBJ:Streams");
+		toString(path, event.getSource()).append(PATH_DELIM).append(event.getName()).append(PATH_DELIM)
+				.append("Events");
+		writeSample(out, path.toString(), event.getOperation().getStartTime(), getSnapshots(event.getOperation()));
+	}
+
+	@Override
+	public synchronized void format(Snapshot snapshot, ByteArrayOutputStream out) {
+		String path = "OBJ:Metrics" + PATH_DELIM + snapshot.getCategory();
+		writeSample(out, path, snapshot.getTimeStamp(), Collections.singleton(snapshot));
+	}
+
+	@Override
+	public synchronized void format(ByteArrayOutputStream out, long ttl, Source source, OpLevel level, String msg,
+			Object... args) {
+		startSegment(out);
+		out.write(REC_MESSAGE);
+		writeVarLong(out, zigZag(System.currentTimeMillis() * 1000L));
+		writeString(out, String.valueOf(level));
+		writeString(out, Utils.format(msg, args));
+	}
+
+	private void writeSample(ByteArrayOutputStream out, String path, UsecTimestamp time,
+			Collection<Snapshot> snapshots) {
+		try {
+			startSegment(out);
+			if (dictionary.size() >= maxDictionarySize) {
+				reset();
+				startSegment(out);
+			}
+			if (!writeSample(out, path, time, snapshots, true)) {
+				// dictionary bound reached - write sample again within new segment
+				reset();
+				startSegment(out);
+				writeSample(out, path, time, snapshots, false);
+			}
+		} catch (RuntimeException exc) {
+			// written dictionary entries are discarded along with output
+			reset();
+			throw exc;
+		}
+	}
+
+	private boolean writeSample(ByteArrayOutputStream out, String path, UsecTimestamp time,
+			Collection<Snapshot> snapshots, boolean bounded) {
+		int pathId = getId(out, path, bounded);
+		if (pathId < 0) {
+			return false;
+		}
+		valuesOut.reset();
+		int count = 0;
+		for (Snapshot snap : snapshots) {
+			Property[] pArray = getPropertiesArray(snap);
+			String sName = getSnapName(snap);
+			Map<String, String> snapKeys = getCachedKeys(snap, sName);
+			for (int i = 0; i < pArray.length; i++) {
+				String pKey = getUniquePropertyKey(pArray[i].getKey(), pArray, i);
+				int keyId = getId(out, getKeyStr(snapKeys, sName, pKey), bounded);
+				if (keyId < 0) {
+					return false;
+				}
+				writeVarInt(valuesOut, keyId);
+				writeValue(valuesOut, pArray[i].getValue());
+				count++;
+			}
+		}
+
+		out.write(REC_SAMPLE);
+		writeVarInt(out, pathId);
+		writeVarLong(out, zigZag(time == null ? System.currentTimeMillis() * 1000L : time.getTimeUsec()));
+		writeVarInt(out, count);
+		try {
+			valuesOut.writeTo(out);
+		} catch (IOException exc) {
+			// never happens writing to byte array stream
+		}
+		if (valuesOut.size() > MAX_RETAINED_VALUES_SIZE) {
+			valuesOut = new ByteArrayOutputStream(8192);
+		}
+		return true;
+	}
+
+	private void startSegment(ByteArrayOutputStream out) {
+		if (!segmentStarted) {
+			out.write(REC_SEGMENT);
+			out.write(FORMAT_VERSION);
+			segmentStarted = true;
+		}
+	}
+
+	/**
+	 * Returns dictionary id of provided path. If path has no id assigned yet, new id is assigned and dictionary entry
+	 * record is written to provided byte stream.
+	 *
+	 * @param out
+	 *            byte stream to write dictionary entry
+	 * @param path
+	 *            record or property key path
+	 * @param bounded
+	 *            flag indicating whether new id can't be assigned when dictionary size bound is reached
+	 * @return path dictionary id, or {@code -1} if bounded dictionary is full
+	 */
+	private int getId(ByteArrayOutputStream out, String path, boolean bounded) {
+		Integer id = dictionary.get(path);
+		if (id == null) {
+			if (bounded && dictionary.size() >= maxDictionarySize) {
+				return -1;
+			}
+			id = dictionary.size();
+			dictionary.put(path, id);
+
+			out.write(REC_DICT);
+			writeVarInt(out, id);
+			writeString(out, path);
+		}
+		return id;
+	}
+
+	private static void writeValue(ByteArrayOutputStream out, Object value) {
+		if (value == null) {
+			out.write(VAL_NULL);
+		} else if (value instanceof Boolean) {
+			out.write((Boolean) value ? VAL_TRUE : VAL_FALSE);
+		} else if (value instanceof Long || value instanceof Integer || value instanceof Short
+				|| value instanceof Byte) {
+			out.write(VAL_LONG);
+			writeVarLong(out, zigZag(((Number) value).longValue()));
+		} else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+			out.write(VAL_LONG);
+			writeVarLong(out, zigZag(((BigInteger) value).longValue()));
+		} else if (value instanceof Float) {
+			out.write(VAL_FLOAT);
+			int bits = Float.floatToIntBits((Float) value);
+			out.write(bits >>> 24);
+			out.write(bits >>> 16);
+			out.write(bits >>> 8);
+			out.write(bits);
+		} else if (value instanceof Double) {
+			out.write(VAL_DOUBLE);
+			long bits = Double.doubleToLongBits((Double) value);
+			for (int s = 56; s >= 0; s -= 8) {
+				out.write((int) (bits >>> s));
+			}
+		} else {
+			out.write(VAL_STRING);
+			writeString(out, Utils.toString(value));
+		}
+	}
+
+	private static void writeString(ByteArrayOutputStream out, String str) {
+		byte[] bytes = str == null ? new byte[0] : str.getBytes(UTF8);
+		writeVarInt(out, bytes.length);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	private static void writeVarInt(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static void writeVarLong(ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Dictionary is cleared and new output segment is started.
+	 */
+	@Override
+	public void setConfiguration(Map<String, ?> settings) {
+		super.setConfiguration(settings);
+
+		maxDictionarySize = Utils.getInt("MaxDictionarySize", settings, maxDictionarySize);
+		reset();
+	}
+}
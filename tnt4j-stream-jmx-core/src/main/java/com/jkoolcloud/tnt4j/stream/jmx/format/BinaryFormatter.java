@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jkoolcloud.tnt4j.stream.jmx.format;
+
+import java.io.ByteArrayOutputStream;
+
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.core.Snapshot;
+import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.source.Source;
+import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
+import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
+
+/**
+ * This interface defines event formatter producing binary output. Binary output may be stateful (e.g. use dictionary
+ * of already sent keys), so sink must call {@link #reset()} every time it starts new output segment: opens new
+ * connection or file.
+ *
+ * @version $Revision: 1 $
+ *
+ * @see com.jkoolcloud.tnt4j.stream.jmx.sink.ChannelEventSink
+ */
+public interface BinaryFormatter extends EventFormatter {
+	/**
+	 * Format a given {@link TrackingEvent} and write it to provided byte stream.
+	 *
+	 * @param event
+	 *            tracking event instance to be formatted
+	 * @param out
+	 *            byte stream to write
+	 */
+	void format(TrackingEvent event, ByteArrayOutputStream out);
+
+	/**
+	 * Format a given {@link TrackingActivity} and write it to provided byte stream.
+	 *
+	 * @param activity
+	 *            tracking activity instance to be formatted
+	 * @param out
+	 *            byte stream to write
+	 */
+	void format(TrackingActivity activity, ByteArrayOutputStream out);
+
+	/**
+	 * Format a given {@link Snapshot} and write it to provided byte stream.
+	 *
+	 * @param snapshot
+	 *            snapshot instance to be formatted
+	 * @param out
+	 *            byte stream to write
+	 */
+	void format(Snapshot snapshot, ByteArrayOutputStream out);
+
+	/**
+	 * Format a given message with arguments and write it to provided byte stream.
+	 *
+	 * @param out
+	 *            byte stream to write
+	 * @param ttl
+	 *            time to live in seconds
+	 * @param source
+	 *            message source
+	 * @param level
+	 *            severity level
+	 * @param msg
+	 *            message pattern
+	 * @param args
+	 *            message arguments
+	 */
+	void format(ByteArrayOutputStream out, long ttl, Source source, OpLevel level, String msg, Object... args);
+
+	/**
+	 * Starts new binary output segment: all formatter output state gets reset, and next formatted record starts new
+	 * segment.
+	 */
+	void reset();
+}
@@ -15,11 +15,14 @@
  */
 package com.jkoolcloud.tnt4j.stream.jmx.format;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
+import javax.management.NotificationListener;
 import javax.management.ObjectName;
 
 import org.apache.commons.lang3.StringUtils;
@@ -38,12 +41,17 @@ import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
  * {@code "OBJ:name-value-prefix,name1=value1,....,nameN=valueN"}.
  * </p>
  * Newline is added at the end of each line.
+ * <p>
+ * Formatter caches decorated property keys per snapshot referenced MBean {@link ObjectName} (or snapshot name, if
+ * snapshot has no MBean reference). Cache is bounded (cfg. key {@code "KeyCacheSize"}, default value
+ * {@value #DEFAULT_KEY_CACHE_SIZE}) - least recently used entries gets evicted. Cache entry of MBean gets invalidated
+ * when MBean gets unregistered.
  *
  * @version $Revision: 1 $
  * 
  * @see com.jkoolcloud.tnt4j.stream.jmx.scheduler.SchedulerImpl
  */
-public class FactNameValueFormatter extends DefaultFormatter {
+public class FactNameValueFormatter extends DefaultFormatter implements StreamingFormatter, NotificationListener {
 	public static final String LF = "\n";
 	public static final String CR = "\r";
 	public static final String FIELD_SEP = ",";
@@ -52,26 +60,50 @@ public class FactNameValueFormatter extends DefaultFormatter {
 	public static final String EQ = "=";
 	public static final String FS_REP = "!";
 
+	public static final int DEFAULT_KEY_CACHE_SIZE = 2048;
+	private static final int MAX_CACHED_KEYS_PER_NAME = 4096;
+
 	private static final String SELF_SNAP_NAME = "Self";
 	private static final String SELF_SNAP_ID = SELF_SNAP_NAME + "@" + PropertySnapshot.CATEGORY_DEFAULT;
 
 	private static final String SNAP_NAME_PROP = "JMX_SNAP_NAME";
 
+	private static final int CHUNKS_PER_THREAD = 4;
+	private static final long WORKER_KEEP_ALIVE_SEC = 60;
+
 	protected Map<String, String> keyReplacements = new HashMap<String, String>();
 	protected Map<String, String> valueReplacements = new HashMap<String, String>();
 
+	protected ReplacementTranslator keyTranslator;
+	protected ReplacementTranslator valueTranslator;
+
+	private int keyCacheSize = DEFAULT_KEY_CACHE_SIZE;
+	private Map<Object, Map<String, String>> keyCache = newKeyCache(keyCacheSize);
+	private final AtomicLong keyCacheHits = new AtomicLong();
+	private final AtomicLong keyCacheMisses = new AtomicLong();
+	private final AtomicLong keyCacheEvictions = new AtomicLong();
+
+	private int parallelThreshold = 0;
+	private int parallelThreads = Runtime.getRuntime().availableProcessors();
+	private ThreadPoolExecutor formatExecutor;
+
 	public FactNameValueFormatter() {
 		super("time.stamp={2},level={1},source={3},msg=\"{0}\"");
 
 		// adding mandatory value symbols replacements
 		valueReplacements.put(CR, "\\r");
 		valueReplacements.put(LF, "\\n");
+
+		compileReplacements();
 	}
 
 	@Override
 	public String format(TrackingEvent event) {
-		StringBuilder nvString = new StringBuilder(1024);
+		return format(event, new StringBuilder(1024)).toString();
+	}
 
+	@Override
+	public StringBuilder format(TrackingEvent event, StringBuilder nvString) {
 		nvString.append("OBJ:Streams");
 		// ------------------------------------------------------------- name
 		toString(nvString, event.getSource()).append(PATH_DELIM).append(event.getName()).append(PATH_DELIM)
@@ -89,12 +121,9 @@ public class FactNameValueFormatter extends DefaultFormatter {
 			event.getOperation().addSnapshot(selfSnapshot);
 		}
 
-		Collection<Snapshot> sList = getSnapshots(event.getOperation());
-		for (Snapshot snap : sList) {
-			toString(nvString, snap);
-		}
+		toString(nvString, getSnapshots(event.getOperation()));
 
-		return nvString.append(END_SEP).toString();
+		return nvString.append(END_SEP);
 	}
 
 	/**
@@ -110,8 +139,11 @@ public class FactNameValueFormatter extends DefaultFormatter {
 
 	@Override
 	public String format(TrackingActivity activity) {
-		StringBuilder nvString = new StringBuilder(1024);
+		return format(activity, new StringBuilder(1024)).toString();
+	}
 
+	@Override
+	public StringBuilder format(TrackingActivity activity, StringBuilder nvString) {
 		nvString.append("OBJ:Streams");
 		toString(nvString, activity.getSource()).append(PATH_DELIM).append("Activities").append(FIELD_SEP);
 
@@ -122,12 +154,9 @@ public class FactNameValueFormatter extends DefaultFormatter {
 			activity.addSnapshot(selfSnapshot);
 		}
 
-		Collection<Snapshot> sList = getSnapshots(activity);
-		for (Snapshot snap : sList) {
-			toString(nvString, snap);
-		}
+		toString(nvString, getSnapshots(activity));
 
-		return nvString.append(END_SEP).toString();
+		return nvString.append(END_SEP);
 	}
 
 	private Snapshot getSelfSnapshot(Operation op) {
@@ -156,25 +185,188 @@ public class FactNameValueFormatter extends DefaultFormatter {
 
 	@Override
 	public String format(Snapshot snapshot) {
-		StringBuilder nvString = new StringBuilder(1024);
+		return format(snapshot, new StringBuilder(1024)).toString();
+	}
 
+	@Override
+	public StringBuilder format(Snapshot snapshot, StringBuilder nvString) {
 		// ------------------------------------------------------ category, id or name
 		nvString.append("OBJ:Metrics").append(PATH_DELIM).append(snapshot.getCategory()).append(FIELD_SEP);
-		toString(nvString, snapshot).append(END_SEP);
-
-		return nvString.toString();
+		return toString(nvString, snapshot).append(END_SEP);
 	}
 
 	@Override
 	public String format(long ttl, Source source, OpLevel level, String msg, Object... args) {
-		StringBuilder nvString = new StringBuilder(1024);
+		return format(new StringBuilder(1024), ttl, source, level, msg, args).toString();
+	}
 
+	@Override
+	public StringBuilder format(StringBuilder nvString, long ttl, Source source, OpLevel level, String msg,
+			Object... args) {
 		nvString.append("OBJ:Streams");
 		toString(nvString, source).append(PATH_DELIM).append("Message").append(FIELD_SEP);
 		nvString.append("Self").append(PATH_DELIM).append("level=").append(getValueStr(level)).append(FIELD_SEP);
 		nvString.append("Self").append(PATH_DELIM).append("msg-text=");
-		Utils.quote(Utils.format(msg, args), nvString).append(END_SEP);
-		return nvString.toString();
+		return Utils.quote(Utils.format(msg, args), nvString).append(END_SEP);
+	}
+
+	/**
+	 * Makes string representations of snapshots and appends them to provided string builder, preserving snapshots
+	 * collection order.
+	 * <p>
+	 * If snapshots count is not less than configuration defined (cfg. key {@code "ParallelThreshold"}, default value
+	 * {@code 0} - disabled) threshold, snapshots are split into contiguous chunks formatted in parallel by formatter
+	 * worker threads (cfg. key {@code "ParallelThreads"}, default value - number of available processors) and calling
+	 * thread. Chunk buffers are then appended in snapshots collection order.
+	 *
+	 * @param nvString
+	 *            string builder instance to append
+	 * @param sList
+	 *            snapshots collection to represent as string
+	 * @return appended string builder reference
+	 *
+	 * @see #toString(StringBuilder, Snapshot)
+	 */
+	protected StringBuilder toString(StringBuilder nvString, Collection<Snapshot> sList) {
+		if (parallelThreshold <= 0 || parallelThreads < 2 || sList.size() < parallelThreshold) {
+			for (Snapshot snap : sList) {
+				toString(nvString, snap);
+			}
+			return nvString;
+		}
+
+		List<Snapshot> snapList = sList instanceof List ? (List<Snapshot>) sList : new ArrayList<Snapshot>(sList);
+		int chunkSize = (snapList.size() + parallelThreads * CHUNKS_PER_THREAD - 1)
+				/ (parallelThreads * CHUNKS_PER_THREAD);
+		ExecutorService executor = getFormatExecutor();
+		List<FormatChunk> chunks = new ArrayList<FormatChunk>();
+		List<Future<StringBuilder>> results = new ArrayList<Future<StringBuilder>>();
+		for (int from = chunkSize; from < snapList.size(); from += chunkSize) {
+			FormatChunk chunk = new FormatChunk(snapList.subList(from, Math.min(from + chunkSize, snapList.size())));
+			chunks.add(chunk);
+			results.add(executor.submit(chunk));
+		}
+
+		// calling thread formats first chunk while workers format the rest
+		appendSnapshots(nvString, snapList.subList(0, Math.min(chunkSize, snapList.size())));
+
+		// chunk is formatted by thread claiming it first, and chunks claimed by workers are always awaited
+		boolean interrupted = false;
+		try {
+			for (int i = 0; i < results.size(); i++) {
+				FormatChunk chunk = chunks.get(i);
+				Future<StringBuilder> result = results.get(i);
+				while (true) {
+					if (interrupted && chunk.claim()) {
+						// not yet started by worker - format on calling thread
+						result.cancel(false);
+						appendSnapshots(nvString, chunk.snapshots);
+						break;
+					}
+					try {
+						nvString.append(result.get());
+						break;
+					} catch (InterruptedException exc) {
+						interrupted = true;
+					} catch (ExecutionException exc) {
+						interrupted |= awaitAll(chunks.subList(i + 1, chunks.size()),
+								results.subList(i + 1, results.size()));
+						Throwable cause = exc.getCause();
+						if (cause instanceof RuntimeException) {
+							throw (RuntimeException) cause;
+						}
+						if (cause instanceof Error) {
+							throw (Error) cause;
+						}
+						throw new RuntimeException(cause);
+					}
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return nvString;
+	}
+
+	/**
+	 * Claims and cancels provided formatting chunks not yet started by workers, and uninterruptibly waits for started
+	 * ones to complete.
+	 *
+	 * @param chunks
+	 *            formatting chunks
+	 * @param results
+	 *            formatting chunks results
+	 * @return {@code true} if calling thread was interrupted while waiting, {@code false} - otherwise
+	 */
+	private static boolean awaitAll(List<FormatChunk> chunks, List<Future<StringBuilder>> results) {
+		boolean interrupted = false;
+		for (int i = 0; i < chunks.size(); i++) {
+			if (chunks.get(i).claim()) {
+				results.get(i).cancel(false);
+				continue;
+			}
+			while (true) {
+				try {
+					results.get(i).get();
+					break;
+				} catch (InterruptedException exc) {
+					interrupted = true;
+				} catch (ExecutionException exc) {
+					break;
+				}
+			}
+		}
+		return interrupted;
+	}
+
+	private StringBuilder appendSnapshots(StringBuilder nvString, List<Snapshot> chunk) {
+		for (Snapshot snap : chunk) {
+			toString(nvString, snap);
+		}
+		return nvString;
+	}
+
+	/**
+	 * Snapshots chunk formatting task. Chunk is formatted only by thread claiming it first: worker thread running task,
+	 * or calling thread taking over chunk not yet started by worker.
+	 */
+	private class FormatChunk implements Callable<StringBuilder> {
+		private final List<Snapshot> snapshots;
+		private final AtomicBoolean claimed = new AtomicBoolean();
+
+		FormatChunk(List<Snapshot> snapshots) {
+			this.snapshots = snapshots;
+		}
+
+		boolean claim() {
+			return claimed.compareAndSet(false, true);
+		}
+
+		@Override
+		public StringBuilder call() throws Exception {
+			return claim() ? appendSnapshots(new StringBuilder(snapshots.size() * 512), snapshots) : null;
+		}
+	}
+
+	private synchronized ExecutorService getFormatExecutor() {
+		if (formatExecutor == null) {
+			formatExecutor = new ThreadPoolExecutor(parallelThreads, parallelThreads, WORKER_KEEP_ALIVE_SEC,
+					TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						private int count = 0;
+
+						@Override
+						public synchronized Thread newThread(Runnable r) {
+							Thread t = new Thread(r,
+									FactNameValueFormatter.this.getClass().getSimpleName() + "-worker-" + (++count));
+							t.setDaemon(true);
+							return t;
+						}
+					});
+			formatExecutor.allowCoreThreadTimeOut(true);
+		}
+		return formatExecutor;
 	}
 
 	/**
@@ -204,10 +396,10 @@ public class FactNameValueFormatter extends DefaultFormatter {
 	 *            source name
 	 * @return decorated string representation of source name
 	 *
-	 * @see Utils#replace(String, Map)
+	 * @see ReplacementTranslator#translate(String)
 	 */
 	protected String getSourceNameStr(String sourceName) {
-		return Utils.replace(sourceName, keyReplacements);
+		return keyTranslator.translate(sourceName);
 	}
 
 	/**
@@ -233,6 +425,7 @@ public class FactNameValueFormatter extends DefaultFormatter {
 	protected StringBuilder toString(StringBuilder nvString, Snapshot snap) {
 		Collection<Property> list = getProperties(snap);
 		String sName = getSnapName(snap);
+		Map<String, String> snapKeys = getCachedKeys(snap, sName);
 		for (Property p : list) {
 			if (p.isTransient()) {
 				continue;
@@ -241,8 +434,8 @@ public class FactNameValueFormatter extends DefaultFormatter {
 			String pKey = p.getKey();
 			Object value = p.getValue();
 
-			nvString.append(getKeyStr(sName, pKey));
-			nvString.append(EQ).append(getValueStr(value)).append(FIELD_SEP);
+			appendKeyStr(nvString, snapKeys, sName, pKey).append(EQ);
+			appendValueStr(nvString, value).append(FIELD_SEP);
 		}
 		return nvString;
 	}
@@ -257,7 +450,7 @@ public class FactNameValueFormatter extends DefaultFormatter {
 	 * @return decorated string representation of snapshot name
 	 */
 	protected String getSnapNameStr(String snapName) {
-		return Utils.replace(snapName, keyReplacements);
+		return keyTranslator.translate(snapName);
 	}
 
 	/**
@@ -313,7 +506,11 @@ public class FactNameValueFormatter extends DefaultFormatter {
 	/**
 	 * Makes decorated string representation of argument attribute key.
 	 * <p>
-	 * Key representation string gets symbols replaced using ones defined in {@link #keyReplacements} map.
+	 * Key representation string gets symbols replaced using ones defined in {@link #keyReplacements} map. Replacements
+	 * are made in single pass.
+	 * <p>
+	 * This is the only place where attribute key representation is made, so subclasses may override it to change key
+	 * representation for both cached and uncached keys.
 	 *
 	 * @param sName
 	 *            snapshot name
@@ -322,12 +519,227 @@ public class FactNameValueFormatter extends DefaultFormatter {
 	 * @return decorated string representation of attribute key
 	 *
 	 * @see #initDefaultKeyReplacements()
-	 * @see Utils#replace(String, Map)
+	 * @see ReplacementTranslator#translate(CharSequence, StringBuilder)
 	 */
 	protected String getKeyStr(String sName, String pKey) {
-		String keyStr = sName + PATH_DELIM + pKey;
+		StringBuilder keyStr = new StringBuilder(sName.length() + pKey.length() + 1);
+		if (keyTranslator.hasMultiCharTokens()) {
+			// token may span over snapshot name and key boundary
+			return keyTranslator.translate(sName + PATH_DELIM + pKey, keyStr).toString();
+		}
+
+		keyTranslator.translate(sName, keyStr);
+		keyTranslator.translate(PATH_DELIM, keyStr);
+		return keyTranslator.translate(pKey, keyStr).toString();
+	}
+
+	/**
+	 * Makes decorated string representation of argument attribute key and appends it to provided string builder.
+	 *
+	 * @param nvString
+	 *            string builder instance to append
+	 * @param sName
+	 *            snapshot name
+	 * @param pKey
+	 *            property key
+	 * @return appended string builder reference
+	 *
+	 * @see #getKeyStr(String, String)
+	 */
+	protected StringBuilder appendKeyStr(StringBuilder nvString, String sName, String pKey) {
+		return nvString.append(getKeyStr(sName, pKey));
+	}
+
+	/**
+	 * Appends provided string builder with decorated string representation of argument attribute key, taken from
+	 * snapshot keys cache. If key is not cached yet, it is made by {@link #getKeyStr(String, String)} and put into
+	 * cache.
+	 *
+	 * @param nvString
+	 *            string builder instance to append
+	 * @param snapKeys
+	 *            snapshot decorated keys cache, {@code null} - if cache is disabled
+	 * @param sName
+	 *            snapshot name
+	 * @param pKey
+	 *            property key
+	 * @return appended string builder reference
+	 *
+	 * @see #getCachedKeys(Snapshot, String)
+	 */
+	protected StringBuilder appendKeyStr(StringBuilder nvString, Map<String, String> snapKeys, String sName,
+			String pKey) {
+		if (snapKeys == null) {
+			return appendKeyStr(nvString, sName, pKey);
+		}
+
+		return nvString.append(getKeyStr(snapKeys, sName, pKey));
+	}
+
+	/**
+	 * Returns decorated string representation of argument attribute key, taken from snapshot keys cache. If key is not
+	 * cached yet, it is made by {@link #getKeyStr(String, String)} and put into cache.
+	 *
+	 * @param snapKeys
+	 *            snapshot decorated keys cache, {@code null} - if cache is disabled
+	 * @param sName
+	 *            snapshot name
+	 * @param pKey
+	 *            property key
+	 * @return decorated string representation of attribute key
+	 *
+	 * @see #getCachedKeys(Snapshot, String)
+	 */
+	protected String getKeyStr(Map<String, String> snapKeys, String sName, String pKey) {
+		if (snapKeys == null) {
+			return getKeyStr(sName, pKey);
+		}
+
+		String keyStr = snapKeys.get(pKey);
+		if (keyStr == null) {
+			keyCacheMisses.incrementAndGet();
+			keyStr = getKeyStr(sName, pKey);
+			if (snapKeys.size() < MAX_CACHED_KEYS_PER_NAME) {
+				snapKeys.put(pKey, keyStr);
+			}
+		} else {
+			keyCacheHits.incrementAndGet();
+		}
+
+		return keyStr;
+	}
+
+	/**
+	 * Returns decorated property keys cache of provided snapshot. Cache is bound to snapshot referenced MBean
+	 * {@link ObjectName} or to snapshot name, if snapshot has no MBean reference.
+	 *
+	 * @param snap
+	 *            snapshot instance
+	 * @param sName
+	 *            decorated snapshot name
+	 * @return snapshot decorated keys cache, or {@code null} if cache is disabled
+	 */
+	protected Map<String, String> getCachedKeys(Snapshot snap, String sName) {
+		Map<Object, Map<String, String>> kCache = keyCache;
+		if (kCache == null) {
+			return null;
+		}
+
+		Property pObjName = Utils.getSnapPropertyIgnoreCase(snap, Utils.OBJ_NAME_OBJ_PROP);
+		Object cKey = isEmpty(pObjName) ? sName : pObjName.getValue();
+		if (cKey == null) {
+			return null;
+		}
+
+		synchronized (kCache) {
+			Map<String, String> snapKeys = kCache.get(cKey);
+			if (snapKeys == null) {
+				snapKeys = new ConcurrentHashMap<String, String>(32);
+				kCache.put(cKey, snapKeys);
+			}
+			return snapKeys;
+		}
+	}
+
+	private Map<Object, Map<String, String>> newKeyCache(final int size) {
+		if (size <= 0) {
+			return null;
+		}
 
-		return Utils.replace(keyStr, keyReplacements);
+		return new LinkedHashMap<Object, Map<String, String>>(Math.min(size, 256), 0.75f, true) {
+			private static final long serialVersionUID = 3441926370482510546L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, Map<String, String>> eldest) {
+				if (size() > size) {
+					keyCacheEvictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Removes decorated property keys cached for provided MBean object name.
+	 *
+	 * @param objName
+	 *            MBean object name
+	 */
+	public void invalidateKeyCache(ObjectName objName) {
+		Map<Object, Map<String, String>> kCache = keyCache;
+		if (kCache != null && objName != null) {
+			synchronized (kCache) {
+				kCache.remove(objName);
+			}
+		}
+	}
+
+	/**
+	 * Clears all cached decorated property keys.
+	 */
+	public void clearKeyCache() {
+		Map<Object, Map<String, String>> kCache = keyCache;
+		if (kCache != null) {
+			synchronized (kCache) {
+				kCache.clear();
+			}
+		}
+	}
+
+	/**
+	 * Returns number of decorated property keys cache hits.
+	 *
+	 * @return number of key cache hits
+	 */
+	public long getKeyCacheHits() {
+		return keyCacheHits.get();
+	}
+
+	/**
+	 * Returns number of decorated property keys cache misses.
+	 *
+	 * @return number of key cache misses
+	 */
+	public long getKeyCacheMisses() {
+		return keyCacheMisses.get();
+	}
+
+	/**
+	 * Returns number of decorated property keys cache entries evicted because of cache size limit.
+	 *
+	 * @return number of key cache evictions
+	 */
+	public long getKeyCacheEvictions() {
+		return keyCacheEvictions.get();
+	}
+
+	/**
+	 * Returns number of objects (MBeans or snapshot names) having decorated property keys cached.
+	 *
+	 * @return number of key cache entries
+	 */
+	public int getKeyCacheSize() {
+		Map<Object, Map<String, String>> kCache = keyCache;
+		if (kCache == null) {
+			return 0;
+		}
+		synchronized (kCache) {
+			return kCache.size();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Invalidates decorated property keys cache entry of unregistered MBean.
+	 */
+	@Override
+	public void handleNotification(Notification notification, Object handback) {
+		if (notification instanceof MBeanServerNotification && MBeanServerNotification.UNREGISTRATION_NOTIFICATION
+				.equalsIgnoreCase(notification.getType())) {
+			invalidateKeyCache(((MBeanServerNotification) notification).getMBeanName());
+		}
 	}
 
 	/**
@@ -344,12 +756,66 @@ public class FactNameValueFormatter extends DefaultFormatter {
 	 *
 	 * @see com.jkoolcloud.tnt4j.utils.Utils#toString(Object)
 	 * @see #initDefaultValueReplacements()
-	 * @see Utils#replace(String, Map)
+	 * @see ReplacementTranslator#translate(String)
 	 */
 	protected String getValueStr(Object value) {
 		String valStr = Utils.toString(value);
 
-		return Utils.replace(valStr, valueReplacements);
+		return valueTranslator.translate(valStr);
+	}
+
+	/**
+	 * Makes decorated string representation of argument attribute value and appends it to provided string builder.
+	 * <p>
+	 * Value representation string gets symbols replaced using ones defined in {@link #valueReplacements} map.
+	 * Replacements are made in single pass writing directly to provided string builder.
+	 * <p>
+	 * Primitive wrapper values ({@link Long}, {@link Integer}, {@link Double}, etc.) are appended as primitives
+	 * without making intermediate string, when value replacements do not affect number representations.
+	 *
+	 * @param nvString
+	 *            string builder instance to append
+	 * @param value
+	 *            attribute value
+	 * @return appended string builder reference
+	 *
+	 * @see #getValueStr(Object)
+	 * @see ReplacementTranslator#translate(CharSequence, StringBuilder)
+	 */
+	protected StringBuilder appendValueStr(StringBuilder nvString, Object value) {
+		if (value instanceof Number && appendPrimitive(nvString, (Number) value, valueTranslator)) {
+			return nvString;
+		}
+		return valueTranslator.translate(Utils.toString(value), nvString);
+	}
+
+	/**
+	 * Appends primitive number wrapper value to provided string builder as primitive, producing same representation as
+	 * {@link String#valueOf(Object)} does, but without making intermediate string.
+	 *
+	 * @param sb
+	 *            string builder instance to append
+	 * @param value
+	 *            value to append
+	 * @param translator
+	 *            value replacements translator, or {@code null} if value is appended as is
+	 * @return {@code true} if value has been appended, {@code false} - if value is not primitive wrapper or
+	 *         translator may affect its representation
+	 */
+	protected static boolean appendPrimitive(StringBuilder sb, Number value, ReplacementTranslator translator) {
+		if (translator != null && !translator.isNumberSafe()) {
+			return false;
+		}
+		if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			sb.append(value.longValue());
+		} else if (value instanceof Double) {
+			sb.append(((Double) value).doubleValue());
+		} else if (value instanceof Float) {
+			sb.append(((Float) value).floatValue());
+		} else {
+			return false;
+		}
+		return true;
 	}
 
 	@Override
@@ -369,6 +835,38 @@ public class FactNameValueFormatter extends DefaultFormatter {
 		} else {
 			Utils.parseReplacements(pValue, valueReplacements);
 		}
+
+		compileReplacements();
+
+		parallelThreshold = Utils.getInt("ParallelThreshold", settings, parallelThreshold);
+		int pThreads = Utils.getInt("ParallelThreads", settings, parallelThreads);
+		if (pThreads != parallelThreads) {
+			synchronized (this) {
+				parallelThreads = pThreads;
+				if (formatExecutor != null) {
+					formatExecutor.shutdown();
+					formatExecutor = null;
+				}
+			}
+		}
+
+		int cSize = Utils.getInt("KeyCacheSize", settings, keyCacheSize);
+		if (cSize != keyCacheSize) {
+			keyCacheSize = cSize;
+			keyCache = newKeyCache(keyCacheSize);
+		} else {
+			clearKeyCache();
+		}
+	}
+
+	/**
+	 * Compiles {@link #keyReplacements} and {@link #valueReplacements} maps into single pass replacement translators.
+	 * <p>
+	 * Must be called every time replacement maps get changed.
+	 */
+	protected void compileReplacements() {
+		keyTranslator = new ReplacementTranslator(keyReplacements);
+		valueTranslator = new ReplacementTranslator(valueReplacements);
 	}
 
 	/**
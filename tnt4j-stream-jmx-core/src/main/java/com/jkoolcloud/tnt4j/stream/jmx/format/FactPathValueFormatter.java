@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.management.ObjectName;
 
@@ -37,84 +38,119 @@ import com.jkoolcloud.tnt4j.utils.Utils;
  * {@code "OBJ:object-path\name1=value1,....,object-path\nameN=valueN"}.
  * </p>
  * Newline is added at the end of each line.
+ * <p>
+ * Resolved object name paths are cached in concurrent bounded (cfg. key {@code "PathCacheSize"}, default value
+ * {@value #DEFAULT_PATH_CACHE_SIZE}) cache, so object names are parsed only once and no locking is required to
+ * resolve paths.
  *
  * @version $Revision: 1 $
  */
 public class FactPathValueFormatter extends FactNameValueFormatter {
 
 	public static final String UNIQUE_SUFFIX = "_";
+	public static final int DEFAULT_PATH_CACHE_SIZE = 2048;
+
+	private static final Comparator<Property> PROPERTY_COMPARATOR = new Comparator<Property>() {
+		@Override
+		public int compare(Property p1, Property p2) {
+			return p1.getKey().compareTo(p2.getKey());
+		}
+	};
 
 	protected String uniqueSuffix = UNIQUE_SUFFIX;
 	protected String[][] pathLevelAttrKeys = null;
 
+	/**
+	 * @deprecated not used anymore: object name paths are resolved without shared properties instance and cached. Kept
+	 *             for compatibility of extending formatters.
+	 */
+	@Deprecated
 	protected final Properties objNameProps = new Properties();
 
-	private Comparator<Snapshot> snapshotComparator;
-	private Comparator<Property> propertyComparator;
+	private int pathCacheSize = DEFAULT_PATH_CACHE_SIZE;
+	private final ConcurrentHashMap<Object, String> pathCache = new ConcurrentHashMap<Object, String>(256);
 
 	public FactPathValueFormatter() {
 		super();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Snapshots are ordered by decorated snapshot name. Snapshot names are resolved once per snapshot, and snapshots
+	 * collection is copied and sorted only if it is not ordered already.
+	 */
 	@Override
 	protected Collection<Snapshot> getSnapshots(Operation op) {
 		Collection<Snapshot> sList = super.getSnapshots(op);
 
-		return getSortedCollection(sList, getSnapshotComparator());
-	}
-
-	private Comparator<Snapshot> getSnapshotComparator() {
-		if (snapshotComparator == null) {
-			snapshotComparator = new Comparator<Snapshot>() {
-				@Override
-				public int compare(Snapshot s1, Snapshot s2) {
-					String s1Path = getSnapName(s1);
-					String s2Path = getSnapName(s2);
-
-					return s1Path.compareTo(s2Path);
-				}
-			};
+		NamedSnapshot[] nsArray = new NamedSnapshot[sList.size()];
+		boolean sorted = true;
+		int i = 0;
+		for (Snapshot snap : sList) {
+			nsArray[i] = new NamedSnapshot(getSnapName(snap), snap);
+			if (i > 0 && sorted && nsArray[i - 1].compareTo(nsArray[i]) > 0) {
+				sorted = false;
+			}
+			i++;
+		}
+		if (sorted) {
+			return sList;
 		}
 
-		return snapshotComparator;
+		Arrays.sort(nsArray);
+		List<Snapshot> cList = new ArrayList<Snapshot>(nsArray.length);
+		for (NamedSnapshot ns : nsArray) {
+			cList.add(ns.snapshot);
+		}
+		return cList;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Properties are ordered by property key. Properties collection is copied and sorted only if it is not ordered
+	 * already, e.g. when sampler produces snapshots having properties ordered by key.
+	 *
+	 * @see com.jkoolcloud.tnt4j.stream.jmx.scheduler.SampleHandlerImpl#setSortedSnapshots(boolean)
+	 */
 	@Override
 	protected Collection<Property> getProperties(Snapshot snap) {
 		Collection<Property> pList = super.getProperties(snap);
 
-		return getSortedCollection(pList, getPropertyComparator());
+		if (isSorted(pList)) {
+			return pList;
+		}
+		return getSortedCollection(pList, PROPERTY_COMPARATOR);
 	}
 
-	private static <T> Collection<T> getSortedCollection(Collection<T> col, Comparator<T> comp) {
-		List<T> cList;
-		if (col instanceof List<?>) {
-			cList = (List<T>) col;
-		} else {
-			cList = Collections.list(Collections.enumeration(col));
+	private static boolean isSorted(Collection<Property> pList) {
+		String prevKey = null;
+		for (Property p : pList) {
+			if (p.isTransient()) {
+				continue;
+			}
+			if (prevKey != null && prevKey.compareTo(p.getKey()) > 0) {
+				return false;
+			}
+			prevKey = p.getKey();
 		}
+		return true;
+	}
+
+	private static <T> Collection<T> getSortedCollection(Collection<T> col, Comparator<T> comp) {
+		List<T> cList = new ArrayList<T>(col);
 		Collections.sort(cList, comp);
 
 		return cList;
 	}
 
-	private Comparator<Property> getPropertyComparator() {
-		if (propertyComparator == null) {
-			propertyComparator = new Comparator<Property>() {
-				@Override
-				public int compare(Property p1, Property p2) {
-					return p1.getKey().compareTo(p2.getKey());
-				}
-			};
-		}
-
-		return propertyComparator;
-	}
 
 	/**
 	 * Makes string representation of snapshot and appends it to provided string builder.
 	 * <p>
-	 * Note: Custom internal use snapshot property named {@code 'JMX_SNAP_NAME'} is ignored.
+	 * Note: Transient snapshot properties (e.g. custom internal use snapshot property named {@code 'JMX_SNAP_NAME'})
+	 * are ignored.
 	 * <p>
 	 * In case snapshot properties have same key for "branch" and "leaf" nodes at same path level, than "leaf" node
 	 * property key value is appended by configuration defined (cfg. key {@code "DuplicateKeySuffix"}, default value
@@ -130,52 +166,145 @@ public class FactPathValueFormatter extends FactNameValueFormatter {
 	 */
 	@Override
 	protected StringBuilder toString(StringBuilder nvString, Snapshot snap) {
-		Collection<Property> list = getProperties(snap);
-		Property[] pArray = new Property[list.size()];
-		pArray = list.toArray(pArray);
+		Property[] pArray = getPropertiesArray(snap);
 		String sName = getSnapName(snap);
+		Map<String, String> snapKeys = getCachedKeys(snap, sName);
 		for (int i = 0; i < pArray.length; i++) {
 			Property p = pArray[i];
-			if (p.isTransient()) {
-				continue;
-			}
-
 			String pKey = getUniquePropertyKey(p.getKey(), pArray, i);
 			Object value = p.getValue();
 
-			nvString.append(getKeyStr(sName, pKey));
-			nvString.append(EQ).append(getValueStr(value)).append(FIELD_SEP);
+			appendKeyStr(nvString, snapKeys, sName, pKey).append(EQ);
+			appendValueStr(nvString, value).append(FIELD_SEP);
 		}
 		return nvString;
 	}
 
+	/**
+	 * Returns array of snapshot non-transient properties, ordered by property key.
+	 *
+	 * @param snap
+	 *            snapshot instance
+	 * @return array of snapshot non-transient properties
+	 *
+	 * @see #getProperties(Snapshot)
+	 */
+	protected Property[] getPropertiesArray(Snapshot snap) {
+		Collection<Property> list = getProperties(snap);
+		Property[] pArray = new Property[list.size()];
+		int pCount = 0;
+		for (Property p : list) {
+			if (!p.isTransient()) {
+				pArray[pCount++] = p;
+			}
+		}
+		if (pCount < pArray.length) {
+			pArray = Arrays.copyOf(pArray, pCount);
+		}
+		return pArray;
+	}
+
 	/**
 	 * Gets property key value and makes it to be unique on same path level among all array properties.
 	 * <p>
 	 * In case of duplicate keys uniqueness is made by adding configuration defined (cfg. key
-	 * {@code "DuplicateKeySuffix"}, default value {@value #UNIQUE_SUFFIX}) suffix to property key value.
+	 * {@code "DuplicateKeySuffix"}, default value {@value #UNIQUE_SUFFIX}) suffix to property key value. Suffix is
+	 * added again while suffixed key also has "branch" nodes further in array.
+	 * <p>
+	 * Properties array must be sorted by property key (see {@link #getProperties(Snapshot)}): "branch" node properties
+	 * of property key are then located using binary search, making whole snapshot keys resolution {@code O(n log n)}.
 	 *
 	 * @param pKey
 	 *            property key value
 	 * @param pArray
-	 *            properties array
+	 *            properties array sorted by property key
 	 * @param pIdx
 	 *            property index in array
 	 * @return unique property key value
 	 */
 	protected String getUniquePropertyKey(String pKey, Property[] pArray, int pIdx) {
-		String ppKey;
-		for (int i = pIdx + 1; i < pArray.length; i++) {
-			ppKey = pArray[i].getKey();
-
-			if (ppKey.startsWith(pKey + PATH_DELIM)) {
-				pKey += uniqueSuffix;
+		int from = pIdx + 1;
+		while (from < pArray.length) {
+			int idx = findBranch(pKey, pArray, from);
+			if (idx < 0) {
+				break;
 			}
+			// suffixed key may also have "branch" nodes further in array
+			pKey += uniqueSuffix;
+			from = idx + 1;
 		}
 
 		return pKey;
 	}
 
+	/**
+	 * Finds first "branch" node property of provided property key within sorted properties array range starting from
+	 * provided index. Branch node properties form contiguous range in sorted array, so binary search is used.
+	 *
+	 * @param pKey
+	 *            "leaf" node property key
+	 * @param pArray
+	 *            properties array sorted by property key
+	 * @param from
+	 *            index to start search from
+	 * @return index of first branch node property, or {@code -1} if there is no such property
+	 */
+	private static int findBranch(String pKey, Property[] pArray, int from) {
+		int lo = from;
+		int hi = pArray.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (compareToBranch(pArray[mid].getKey(), pKey) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+
+		return lo < pArray.length && compareToBranch(pArray[lo].getKey(), pKey) == 0 ? lo : -1;
+	}
+
+	/**
+	 * Compares property key to "branch" nodes prefix {@code pKey + PATH_DELIM} of provided property key, without
+	 * building prefix string.
+	 *
+	 * @param key
+	 *            property key to compare
+	 * @param pKey
+	 *            "leaf" node property key
+	 * @return {@code 0} if key starts with branch prefix, negative value if key is less than prefix, positive value if
+	 *         key is greater than any key starting with prefix
+	 */
+	private static int compareToBranch(String key, String pKey) {
+		int pLen = pKey.length();
+		int n = Math.min(key.length(), pLen);
+		for (int i = 0; i < n; i++) {
+			int d = key.charAt(i) - pKey.charAt(i);
+			if (d != 0) {
+				return d;
+			}
+		}
+		if (key.length() <= pLen) {
+			return -1;
+		}
+		return key.charAt(pLen) - PATH_DELIM.charAt(0);
+	}
+
+	private static class NamedSnapshot implements Comparable<NamedSnapshot> {
+		private final String name;
+		private final Snapshot snapshot;
+
+		private NamedSnapshot(String name, Snapshot snapshot) {
+			this.name = name;
+			this.snapshot = snapshot;
+		}
+
+		@Override
+		public int compareTo(NamedSnapshot o) {
+			return name.compareTo(o.name);
+		}
+	}
+
 	@Override
 	protected String getSnapNameStr(String objCanonName) {
 		if (Utils.isEmpty(objCanonName)) {
@@ -188,11 +317,15 @@ public class FactPathValueFormatter extends FactNameValueFormatter {
 			return objCanonName;
 		}
 
-		synchronized (objNameProps) {
+		String path = pathCache.get(objCanonName);
+		if (path == null) {
+			Properties objNameProps = new Properties();
 			loadProps(objNameProps, objCanonName, ddIdx);
-
-			return getObjNameStr(objNameProps);
+			path = getObjNameStr(objNameProps);
+			cachePath(objCanonName, path);
 		}
+
+		return path;
 	}
 
 	@Override
@@ -201,9 +334,45 @@ public class FactPathValueFormatter extends FactNameValueFormatter {
 			return "null";
 		}
 
-		Map<String, String> objNameProps = getKeyPropertyList(objName);
+		String path = pathCache.get(objName);
+		if (path == null) {
+			Map<String, String> objNameProps = getKeyPropertyList(objName);
+			path = getObjNameStr(objNameProps);
+			cachePath(objName, path);
+		}
+
+		return path;
+	}
+
+	private void cachePath(Object key, String path) {
+		if (pathCacheSize <= 0) {
+			return;
+		}
+		if (pathCache.size() >= pathCacheSize) {
+			// cache is full - drop any entry to make room
+			Iterator<Object> it = pathCache.keySet().iterator();
+			if (it.hasNext()) {
+				it.next();
+				it.remove();
+			}
+		}
+		pathCache.put(key, path);
+	}
+
+	/**
+	 * Removes cached object name paths and decorated property keys of unregistered MBean.
+	 *
+	 * @param objName
+	 *            MBean object name
+	 */
+	@Override
+	public void invalidateKeyCache(ObjectName objName) {
+		super.invalidateKeyCache(objName);
 
-		return getObjNameStr(objNameProps);
+		if (objName != null) {
+			pathCache.remove(objName);
+			pathCache.remove(objName.getCanonicalName());
+		}
 	}
 
 	protected Map<String, String> getKeyPropertyList(ObjectName objName) {
@@ -302,6 +471,9 @@ public class FactPathValueFormatter extends FactNameValueFormatter {
 		if (StringUtils.isNotEmpty(pValue)) {
 			initPathLevelAttrKeys(pValue);
 		}
+
+		pathCacheSize = Utils.getInt("PathCacheSize", settings, pathCacheSize);
+		pathCache.clear();
 	}
 
 	private void initPathLevelAttrKeys(String levelsStr) {
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jkoolcloud.tnt4j.stream.jmx.format;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.CharBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.ObjectName;
+
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.core.Property;
+import com.jkoolcloud.tnt4j.core.Snapshot;
+import com.jkoolcloud.tnt4j.core.UsecTimestamp;
+import com.jkoolcloud.tnt4j.source.Source;
+import com.jkoolcloud.tnt4j.stream.jmx.utils.Utils;
+import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
+import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
+
+/**
+ * This class provides InfluxDB line protocol formatting for tnt4j activities, events and snapshots. One line is
+ * produced for every MBean snapshot:
+ * <p>
+ * {@code "measurement,domain=d,key1=v1,...,keyN=vN field1=1i,field2=0.5,...,fieldN=true 1514764800000000000"}.
+ * </p>
+ * Measurement name is defined by configuration (cfg. key {@code "Measurement"}, default value
+ * {@value #DEFAULT_MEASUREMENT}). MBean object name domain and key properties are rendered as tags (key property named
+ * {@code "domain"} is renamed to {@code "key_domain"} to not clash with domain tag), numeric and boolean
+ * snapshot properties are rendered as fields, and activity start time is rendered as nanosecond precision timestamp.
+ * Snapshots having no numeric properties are skipped.
+ * <p>
+ * Tag set of MBean does not change between sampling cycles, so escaped measurement and tags line prefix is cached per
+ * MBean object name in bounded (cfg. key {@code "TagsCacheSize"}, default value {@value #DEFAULT_TAGS_CACHE_SIZE})
+ * cache, and only fields section is built every cycle.
+ * <p>
+ * Activity lines are split into batches of configuration defined (cfg. key {@code "MaxBatchSize"}, default value
+ * {@value #DEFAULT_MAX_BATCH_SIZE}) max size in chars, see {@link #formatBatches(TrackingActivity, StringBuilder)}.
+ *
+ * @version $Revision: 1 $
+ *
+ * @see com.jkoolcloud.tnt4j.stream.jmx.sink.ChannelEventSink
+ */
+public class LineProtocolFormatter extends FactNameValueFormatter implements BatchingFormatter {
+	public static final String DEFAULT_MEASUREMENT = "jmx";
+	public static final int DEFAULT_TAGS_CACHE_SIZE = 2048;
+	public static final int DEFAULT_MAX_BATCH_SIZE = 64 * 1024;
+
+	private static final String DOMAIN_TAG = "domain";
+	private static final String DOMAIN_KEY_TAG = "key_domain";
+	private static final String SNAPSHOT_TAG = "snapshot";
+	private static final char LINE_END = '\n';
+
+	private String measurement = DEFAULT_MEASUREMENT;
+	private int tagsCacheSize = DEFAULT_TAGS_CACHE_SIZE;
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+	private final ConcurrentHashMap<Object, String> tagsCache = new ConcurrentHashMap<Object, String>(256);
+
+	public LineProtocolFormatter() {
+		super();
+	}
+
+	@Override
+	public StringBuilder format(TrackingActivity activity, StringBuilder out) {
+		long timeNanos = getTimeNanos(activity.getStartTime());
+		for (Snapshot snap : activity.getSnapshots()) {
+			appendLine(out, snap, timeNanos);
+		}
+		return out;
+	}
+
+	@Override
+	public List<CharSequence> formatBatches(TrackingActivity activity, StringBuilder out) {
+		List<CharSequence> batches = new ArrayList<CharSequence>();
+		long timeNanos = getTimeNanos(activity.getStartTime());
+		int batchStart = out.length();
+		int lineStart = batchStart;
+		for (Snapshot snap : activity.getSnapshots()) {
+			appendLine(out, snap, timeNanos);
+			if (out.length() - batchStart > maxBatchSize && lineStart > batchStart) {
+				batches.add(CharBuffer.wrap(out, batchStart, lineStart));
+				batchStart = lineStart;
+			}
+			lineStart = out.length();
+		}
+		if (out.length() > batchStart) {
+			batches.add(CharBuffer.wrap(out, batchStart, out.length()));
+		}
+		return batches;
+	}
+
+	@Override
+	public StringBuilder format(TrackingEvent event, StringBuilder out) {
+		long timeNanos = getTimeNanos(event.getOperation().getStartTime());
+		for (Snapshot snap : event.getOperation().getSnapshots()) {
+			appendLine(out, snap, timeNanos);
+		}
+		return out;
+	}
+
+	@Override
+	public StringBuilder format(Snapshot snapshot, StringBuilder out) {
+		return appendLine(out, snapshot, getTimeNanos(snapshot.getTimeStamp()));
+	}
+
+	@Override
+	public StringBuilder format(StringBuilder out, long ttl, Source source, OpLevel level, String msg,
+			Object... args) {
+		String text = Utils.format(msg, args);
+		return out.append("# ").append(text == null ? "" : text.replace('\n', ' ').replace('\r', ' ')).append(LINE_END);
+	}
+
+	private static long getTimeNanos(UsecTimestamp time) {
+		return (time == null ? System.currentTimeMillis() * 1000L : time.getTimeUsec()) * 1000L;
+	}
+
+	/**
+	 * Makes line protocol line of snapshot and appends it to provided string builder. Nothing is appended if snapshot
+	 * has no numeric properties.
+	 *
+	 * @param out
+	 *            string builder to append
+	 * @param snap
+	 *            snapshot instance to represent as line
+	 * @param timeNanos
+	 *            line timestamp in nanoseconds
+	 * @return appended string builder instance
+	 */
+	protected StringBuilder appendLine(StringBuilder out, Snapshot snap, long timeNanos) {
+		int lineStart = out.length();
+		out.append(getTags(snap));
+		char sep = ' ';
+		for (Property p : snap.getSnapshot()) {
+			if (p.isTransient()) {
+				continue;
+			}
+			Object value = p.getValue();
+			if (!isField(value)) {
+				continue;
+			}
+			out.append(sep);
+			appendEscaped(out, p.getKey(), false).append('=');
+			appendFieldValue(out, value);
+			sep = ',';
+		}
+		if (sep == ' ') {
+			out.setLength(lineStart);
+			return out;
+		}
+		return out.append(' ').append(timeNanos).append(LINE_END);
+	}
+
+	private String getTags(Snapshot snap) {
+		Property pObjName = Utils.getSnapPropertyIgnoreCase(snap, Utils.OBJ_NAME_OBJ_PROP);
+		Object key = pObjName == null || pObjName.getValue() == null ? snap.getName() : pObjName.getValue();
+
+		String tags = tagsCache.get(key);
+		if (tags == null) {
+			tags = key instanceof ObjectName ? makeTags((ObjectName) key) : makeTags(String.valueOf(key));
+			if (tagsCacheSize > 0) {
+				if (tagsCache.size() >= tagsCacheSize) {
+					tagsCache.clear();
+				}
+				tagsCache.put(key, tags);
+			}
+		}
+		return tags;
+	}
+
+	private String makeTags(ObjectName objName) {
+		StringBuilder sb = new StringBuilder(128);
+		appendEscaped(sb, measurement, true);
+		appendTag(sb, DOMAIN_TAG, objName.getDomain());
+		Map<String, String> props = new TreeMap<String, String>(objName.getKeyPropertyList());
+		for (Map.Entry<String, String> pe : props.entrySet()) {
+			// duplicate tag keys are not allowed
+			String tagKey = DOMAIN_TAG.equals(pe.getKey()) ? DOMAIN_KEY_TAG : pe.getKey();
+			appendTag(sb, tagKey, unquote(pe.getValue()));
+		}
+		return sb.toString();
+	}
+
+	private String makeTags(String snapName) {
+		StringBuilder sb = new StringBuilder(64);
+		appendEscaped(sb, measurement, true);
+		appendTag(sb, SNAPSHOT_TAG, snapName);
+		return sb.toString();
+	}
+
+	private static void appendTag(StringBuilder sb, String key, String value) {
+		// empty tag values are not allowed
+		if (Utils.isEmpty(value)) {
+			return;
+		}
+		sb.append(',');
+		appendEscaped(sb, key, false).append('=');
+		appendEscaped(sb, value, false);
+	}
+
+	private static String unquote(String value) {
+		if (value.length() > 1 && value.charAt(0) == '"') {
+			try {
+				return ObjectName.unquote(value);
+			} catch (IllegalArgumentException exc) {
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Escapes line protocol special symbols of provided string and appends it to provided string builder. Measurement
+	 * names have commas and spaces escaped, tag keys, tag values and field keys have also equal signs escaped. Line
+	 * breaks are replaced with spaces. Trailing backslash is escaped, so it does not escape following delimiter.
+	 *
+	 * @param sb
+	 *            string builder to append
+	 * @param str
+	 *            string to escape
+	 * @param measurement
+	 *            flag indicating whether string is measurement name
+	 * @return appended string builder instance
+	 */
+	protected static StringBuilder appendEscaped(StringBuilder sb, String str, boolean measurement) {
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			switch (c) {
+			case ',':
+			case ' ':
+				sb.append('\\').append(c);
+				break;
+			case '=':
+				if (!measurement) {
+					sb.append('\\');
+				}
+				sb.append(c);
+				break;
+			case '\n':
+			case '\r':
+				sb.append("\\ ");
+				break;
+			case '\\':
+				sb.append(c);
+				if (i == str.length() - 1) {
+					sb.append(c);
+				}
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+		return sb;
+	}
+
+	private static boolean isField(Object value) {
+		if (value instanceof Double || value instanceof Float) {
+			double d = ((Number) value).doubleValue();
+			return !Double.isNaN(d) && !Double.isInfinite(d);
+		}
+		return value instanceof Number || value instanceof Boolean;
+	}
+
+	private static StringBuilder appendFieldValue(StringBuilder sb, Object value) {
+		if (value instanceof Boolean) {
+			return sb.append(((Boolean) value).booleanValue());
+		}
+		if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			return sb.append(((Number) value).longValue()).append('i');
+		}
+		if (value instanceof BigInteger) {
+			BigInteger bi = (BigInteger) value;
+			return bi.bitLength() < 64 ? sb.append(bi).append('i') : sb.append(bi.doubleValue());
+		}
+		if (value instanceof BigDecimal) {
+			return sb.append(((BigDecimal) value).toPlainString());
+		}
+		return sb.append(((Number) value).doubleValue());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Also removes cached tags line prefix of unregistered MBean.
+	 */
+	@Override
+	public void invalidateKeyCache(ObjectName objName) {
+		super.invalidateKeyCache(objName);
+
+		if (objName != null) {
+			tagsCache.remove(objName);
+		}
+	}
+
+	@Override
+	public void setConfiguration(Map<String, ?> settings) {
+		super.setConfiguration(settings);
+
+		measurement = Utils.getString("Measurement", settings, measurement);
+		tagsCacheSize = Utils.getInt("TagsCacheSize", settings, tagsCacheSize);
+		maxBatchSize = Utils.getInt("MaxBatchSize", settings, maxBatchSize);
+		tagsCache.clear();
+	}
+}
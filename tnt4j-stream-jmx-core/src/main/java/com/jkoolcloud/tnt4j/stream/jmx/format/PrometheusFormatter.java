@@ -0,0 +1,428 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jkoolcloud.tnt4j.stream.jmx.format;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.ObjectName;
+
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.core.Property;
+import com.jkoolcloud.tnt4j.core.Snapshot;
+import com.jkoolcloud.tnt4j.source.Source;
+import com.jkoolcloud.tnt4j.stream.jmx.utils.Utils;
+import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
+import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
+
+/**
+ * This class provides Prometheus text exposition format (version {@code 0.0.4}) formatting for tnt4j activities,
+ * events and snapshots. The output format follows the following format:
+ * <p>
+ * {@code "# TYPE metric_name untyped\nmetric_name{label1="value1",...,labelN="valueN"} value"}.
+ * </p>
+ * Metric name is made of MBean object name path levels (cfg. key {@code "PathLevelAttributes"}, default value
+ * {@code "domain; type"}) and snapshot property key. All other MBean object name key properties are rendered as metric
+ * labels. Only numeric (and boolean, rendered as {@code 1/0}) property values are rendered, all other ones are
+ * skipped.
+ * <p>
+ * Sanitized metric names and object name labels are cached in bounded (cfg. key {@code "NameCacheSize"}, default
+ * value {@value #DEFAULT_NAME_CACHE_SIZE}) caches.
+ *
+ * @version $Revision: 1 $
+ *
+ * @see com.jkoolcloud.tnt4j.stream.jmx.sink.PrometheusEventSink
+ */
+public class PrometheusFormatter extends FactPathValueFormatter {
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+	public static final int DEFAULT_NAME_CACHE_SIZE = 100000;
+
+	private static final String[][] METRIC_NAME_ATTR_KEYS = new String[][] { { "domain" }, { "type" } };
+	private static final String DOMAIN_KEY = "domain";
+	private static final char NAME_DELIM = '_';
+	private static final int MAX_CACHED_NAMES_PER_OBJECT = 4096;
+
+	private String metricPrefix = "";
+	private int nameCacheSize = DEFAULT_NAME_CACHE_SIZE;
+	private final ConcurrentHashMap<Object, ObjectNameMetrics> objNameCache = new ConcurrentHashMap<Object, ObjectNameMetrics>(
+			256);
+
+	public PrometheusFormatter() {
+		super();
+
+		pathLevelAttrKeys = METRIC_NAME_ATTR_KEYS;
+	}
+
+	@Override
+	public StringBuilder format(TrackingActivity activity, StringBuilder out) {
+		return format(activity.getSnapshots(), out);
+	}
+
+	@Override
+	public StringBuilder format(TrackingEvent event, StringBuilder out) {
+		return format(event.getOperation().getSnapshots(), out);
+	}
+
+	@Override
+	public StringBuilder format(Snapshot snapshot, StringBuilder out) {
+		return format(Collections.singleton(snapshot), out);
+	}
+
+	@Override
+	public StringBuilder format(StringBuilder out, long ttl, Source source, OpLevel level, String msg,
+			Object... args) {
+		String text = Utils.format(msg, args);
+		return out.append("# ").append(text == null ? "" : text.replace('\n', ' ').replace('\r', ' ')).append(LF);
+	}
+
+	/**
+	 * Renders provided snapshots collection in Prometheus text exposition format. Samples of same metric are grouped
+	 * together and metrics are ordered by metric name.
+	 *
+	 * @param snapshots
+	 *            snapshots collection to render
+	 * @param out
+	 *            string builder to append
+	 * @return appended string builder instance
+	 */
+	protected StringBuilder format(Collection<Snapshot> snapshots, StringBuilder out) {
+		return formatSeries(mergeSeries(snapshots, new LinkedHashMap<Object, Series>()), out);
+	}
+
+	/**
+	 * Merges numeric samples of provided snapshots collection into provided series map. Map is keyed by MBean object
+	 * name (or snapshot name), and sample values already present in map for same MBean and metric name are replaced.
+	 * This way samples of MBeans (or MBean attributes) not present in provided snapshots are retained in map.
+	 *
+	 * @param snapshots
+	 *            snapshots collection to merge
+	 * @param series
+	 *            series map to merge samples into
+	 * @return merged series map instance
+	 *
+	 * @see #formatSeries(java.util.Map, StringBuilder)
+	 */
+	public Map<Object, Series> mergeSeries(Collection<Snapshot> snapshots, Map<Object, Series> series) {
+		StringBuilder vb = new StringBuilder(32);
+		for (Snapshot snap : snapshots) {
+			Object key = getSeriesKey(snap);
+			ObjectNameMetrics onm = getObjectNameMetrics(key);
+			Series ss = series.get(key);
+			for (Property p : snap.getSnapshot()) {
+				if (p.isTransient()) {
+					continue;
+				}
+				Object value = p.getValue();
+				if (!isNumeric(value)) {
+					continue;
+				}
+
+				if (ss == null) {
+					ss = new Series(onm.labels);
+					series.put(key, ss);
+				}
+				vb.setLength(0);
+				ss.samples.put(onm.getMetricName(p.getKey()), appendValue(vb, value).toString());
+			}
+		}
+		return series;
+	}
+
+	/**
+	 * Renders provided series map in Prometheus text exposition format. Samples of same metric are grouped together
+	 * and metrics are ordered by metric name.
+	 *
+	 * @param series
+	 *            series map to render
+	 * @param out
+	 *            string builder to append
+	 * @return appended string builder instance
+	 *
+	 * @see #mergeSeries(java.util.Collection, java.util.Map)
+	 */
+	public static StringBuilder formatSeries(Map<Object, Series> series, StringBuilder out) {
+		Map<String, StringBuilder> families = new TreeMap<String, StringBuilder>();
+		for (Series ss : series.values()) {
+			for (Map.Entry<String, String> se : ss.samples.entrySet()) {
+				String name = se.getKey();
+				StringBuilder family = families.get(name);
+				if (family == null) {
+					family = new StringBuilder(128);
+					family.append("# TYPE ").append(name).append(" untyped").append(LF);
+					families.put(name, family);
+				}
+				family.append(name).append(ss.labels).append(' ').append(se.getValue()).append(LF);
+			}
+		}
+
+		for (StringBuilder family : families.values()) {
+			out.append(family);
+		}
+		return out;
+	}
+
+	/**
+	 * Returns series key of provided snapshot: MBean object name, or snapshot name if snapshot has no object name
+	 * property.
+	 *
+	 * @param snap
+	 *            snapshot instance
+	 * @return snapshot series key
+	 */
+	public static Object getSeriesKey(Snapshot snap) {
+		Property pObjName = Utils.getSnapPropertyIgnoreCase(snap, Utils.OBJ_NAME_OBJ_PROP);
+		return pObjName == null || pObjName.getValue() == null ? snap.getName() : pObjName.getValue();
+	}
+
+	private ObjectNameMetrics getObjectNameMetrics(Object key) {
+		ObjectNameMetrics onm = objNameCache.get(key);
+		if (onm == null) {
+			onm = key instanceof ObjectName ? new ObjectNameMetrics((ObjectName) key)
+					: new ObjectNameMetrics(String.valueOf(key));
+			if (objNameCache.size() >= nameCacheSize) {
+				objNameCache.clear();
+			}
+			objNameCache.put(key, onm);
+		}
+		return onm;
+	}
+
+	private static boolean isNumeric(Object value) {
+		return value instanceof Number || value instanceof Boolean;
+	}
+
+	private static StringBuilder appendValue(StringBuilder sb, Object value) {
+		if (value instanceof Boolean) {
+			return sb.append(((Boolean) value) ? '1' : '0');
+		}
+		if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			return sb.append(((Number) value).longValue());
+		}
+		if (value instanceof BigInteger) {
+			return sb.append(value);
+		}
+		if (value instanceof BigDecimal) {
+			return sb.append(((BigDecimal) value).toString());
+		}
+		double d = ((Number) value).doubleValue();
+		if (Double.isNaN(d)) {
+			return sb.append("NaN");
+		}
+		if (Double.isInfinite(d)) {
+			return sb.append(d > 0 ? "+Inf" : "-Inf");
+		}
+		return sb.append(d);
+	}
+
+	/**
+	 * Makes Prometheus metric name compliant string ({@code [a-zA-Z_:][a-zA-Z0-9_:]*}) from provided string, by
+	 * replacing all non compliant symbols with {@code '_'}.
+	 *
+	 * @param sb
+	 *            string builder to append sanitized name
+	 * @param name
+	 *            name string to sanitize
+	 * @param allowColon
+	 *            flag indicating whether {@code ':'} symbol is allowed in name
+	 * @return appended string builder instance
+	 */
+	protected static StringBuilder appendSanitized(StringBuilder sb, String name, boolean allowColon) {
+		char last = sb.length() == 0 ? ',' : sb.charAt(sb.length() - 1);
+		if ((last == ',' || last == '{') && (name.isEmpty() || Character.isDigit(name.charAt(0)))) {
+			sb.append(NAME_DELIM);
+		}
+		char prev = 0;
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_'
+					|| (allowColon && c == ':'))) {
+				c = NAME_DELIM;
+			}
+			if (c != NAME_DELIM || prev != NAME_DELIM) {
+				sb.append(c);
+			}
+			prev = c;
+		}
+		return sb;
+	}
+
+	private static StringBuilder appendLabelValue(StringBuilder sb, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+		return sb;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Also removes cached metric names and labels of unregistered MBean.
+	 */
+	@Override
+	public void invalidateKeyCache(ObjectName objName) {
+		super.invalidateKeyCache(objName);
+
+		if (objName != null) {
+			objNameCache.remove(objName);
+		}
+	}
+
+	@Override
+	public void setConfiguration(Map<String, ?> settings) {
+		super.setConfiguration(settings);
+
+		metricPrefix = Utils.getString("MetricPrefix", settings, metricPrefix);
+		nameCacheSize = Utils.getInt("NameCacheSize", settings, nameCacheSize);
+		objNameCache.clear();
+	}
+
+	/**
+	 * Rendered numeric samples of single MBean (or snapshot): metric labels and metric name to sample value string map.
+	 */
+	public static class Series {
+		private final String labels;
+		private final Map<String, String> samples = new LinkedHashMap<String, String>();
+
+		/**
+		 * Constructs a new Series.
+		 *
+		 * @param labels
+		 *            rendered metric labels string, or empty string if metric has no labels
+		 */
+		public Series(String labels) {
+			this.labels = labels;
+		}
+
+		/**
+		 * Returns rendered metric labels.
+		 *
+		 * @return rendered metric labels
+		 */
+		public String getLabels() {
+			return labels;
+		}
+
+		/**
+		 * Returns metric name to sample value string map.
+		 *
+		 * @return samples map
+		 */
+		public Map<String, String> getSamples() {
+			return samples;
+		}
+	}
+
+	/**
+	 * Cached metric names prefix, labels and metric names made for single MBean object name (or snapshot name).
+	 */
+	private class ObjectNameMetrics {
+		private final String namePrefix;
+		private final String labels;
+		private final ConcurrentHashMap<String, String> names = new ConcurrentHashMap<String, String>(32);
+
+		ObjectNameMetrics(ObjectName objName) {
+			Set<String> nameKeys = new HashSet<String>();
+			StringBuilder sb = new StringBuilder(64);
+			if (!metricPrefix.isEmpty()) {
+				appendSanitized(sb, metricPrefix, true);
+			}
+			if (pathLevelAttrKeys != null) {
+				for (String[] levelAttrKeys : pathLevelAttrKeys) {
+					for (String pKey : levelAttrKeys) {
+						String pv = DOMAIN_KEY.equals(pKey) ? objName.getDomain() : objName.getKeyProperty(pKey);
+						if (!Utils.isEmpty(pv)) {
+							appendNameLevel(sb, unquote(pv));
+							nameKeys.add(pKey);
+						}
+					}
+				}
+			}
+			namePrefix = sb.toString();
+
+			Map<String, String> props = new TreeMap<String, String>(objName.getKeyPropertyList());
+			StringBuilder lb = new StringBuilder(64);
+			for (Map.Entry<String, String> pe : props.entrySet()) {
+				if (nameKeys.contains(pe.getKey())) {
+					continue;
+				}
+				lb.append(lb.length() == 0 ? "{" : ",");
+				appendSanitized(lb, pe.getKey(), false).append("=\"");
+				appendLabelValue(lb, unquote(pe.getValue())).append('"');
+			}
+			if (lb.length() > 0) {
+				lb.append('}');
+			}
+			labels = lb.toString();
+		}
+
+		ObjectNameMetrics(String snapName) {
+			StringBuilder sb = new StringBuilder(64);
+			if (!metricPrefix.isEmpty()) {
+				appendSanitized(sb, metricPrefix, true);
+			}
+			appendNameLevel(sb, snapName);
+			namePrefix = sb.toString();
+			labels = "";
+		}
+
+		private void appendNameLevel(StringBuilder sb, String level) {
+			if (sb.length() > 0) {
+				sb.append(NAME_DELIM);
+			}
+			appendSanitized(sb, level, true);
+		}
+
+		String getMetricName(String pKey) {
+			String name = names.get(pKey);
+			if (name == null) {
+				StringBuilder sb = new StringBuilder(namePrefix.length() + pKey.length() + 1);
+				sb.append(namePrefix);
+				appendNameLevel(sb, pKey);
+				name = sb.toString();
+				if (names.size() < MAX_CACHED_NAMES_PER_OBJECT) {
+					names.put(pKey, name);
+				}
+			}
+			return name;
+		}
+
+		private String unquote(String value) {
+			if (value.length() > 1 && value.charAt(0) == '"') {
+				try {
+					return ObjectName.unquote(value);
+				} catch (IllegalArgumentException exc) {
+				}
+			}
+			return value;
+		}
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jkoolcloud.tnt4j.stream.jmx.format;
+
+import java.util.*;
+
+/**
+ * This class defines single pass symbols replacements translator compiled from replacements map (token to replacement
+ * string).
+ * <p>
+ * Translator scans input string only once: on every input position tokens starting with current char are checked
+ * (longest token first) and first matching token replacement is appended to output string builder. Input chars not
+ * starting any token are appended as is. Replacement strings are not scanned again, so replacements do not cascade.
+ * <p>
+ * Tokens are indexed by first char: chars below {@code 128} are resolved using lookup table, other chars - using hash
+ * map.
+ *
+ * @version $Revision: 1 $
+ *
+ * @see com.jkoolcloud.tnt4j.utils.Utils#replace(String, Map)
+ */
+public class ReplacementTranslator {
+	private static final int TABLE_SIZE = 128;
+	private static final Token[] NO_TOKENS = new Token[0];
+	private static final String NUMBER_CHARS = "0123456789+-.EInfityNa";
+
+	private final Token[][] asciiTokens = new Token[TABLE_SIZE][];
+	private final Map<Character, Token[]> otherTokens = new HashMap<Character, Token[]>();
+	private final boolean empty;
+	private final boolean multiCharTokens;
+	private final boolean numberSafe;
+
+	/**
+	 * Constructs a new ReplacementTranslator compiled from provided replacements map.
+	 *
+	 * @param replacements
+	 *            replacements map, where key is token to replace and value is replacement string
+	 */
+	public ReplacementTranslator(Map<String, String> replacements) {
+		Map<Character, List<Token>> tokensMap = new HashMap<Character, List<Token>>();
+		boolean multiChar = false;
+		boolean nSafe = true;
+		if (replacements != null) {
+			for (Map.Entry<String, String> re : replacements.entrySet()) {
+				String token = re.getKey();
+				if (token == null || token.isEmpty()) {
+					continue;
+				}
+				Character fc = token.charAt(0);
+				List<Token> tokens = tokensMap.get(fc);
+				if (tokens == null) {
+					tokens = new ArrayList<Token>(2);
+					tokensMap.put(fc, tokens);
+				}
+				tokens.add(new Token(token, re.getValue() == null ? "" : re.getValue()));
+				multiChar |= token.length() > 1;
+				nSafe &= NUMBER_CHARS.indexOf(token.charAt(0)) < 0;
+			}
+		}
+
+		for (Map.Entry<Character, List<Token>> te : tokensMap.entrySet()) {
+			Token[] tokens = te.getValue().toArray(NO_TOKENS);
+			Arrays.sort(tokens);
+			char fc = te.getKey();
+			if (fc < TABLE_SIZE) {
+				asciiTokens[fc] = tokens;
+			} else {
+				otherTokens.put(te.getKey(), tokens);
+			}
+		}
+
+		empty = tokensMap.isEmpty();
+		multiCharTokens = multiChar;
+		numberSafe = nSafe;
+	}
+
+	/**
+	 * Makes replacements in provided string.
+	 *
+	 * @param str
+	 *            string to make replacements
+	 * @return string having replacements made, or same string instance if there was nothing to replace
+	 */
+	public String translate(String str) {
+		if (str == null || str.isEmpty() || empty) {
+			return str;
+		}
+		int idx = indexOfToken(str, 0);
+		if (idx < 0) {
+			return str;
+		}
+
+		StringBuilder sb = new StringBuilder(str.length() + 16);
+		sb.append(str, 0, idx);
+		return translate(str, idx, sb).toString();
+	}
+
+	/**
+	 * Makes replacements in provided char sequence and appends result to provided string builder.
+	 *
+	 * @param str
+	 *            char sequence to make replacements
+	 * @param sb
+	 *            string builder to append
+	 * @return appended string builder instance
+	 */
+	public StringBuilder translate(CharSequence str, StringBuilder sb) {
+		if (str == null) {
+			return sb.append((String) null);
+		}
+		if (empty) {
+			return sb.append(str);
+		}
+		return translate(str, 0, sb);
+	}
+
+	private StringBuilder translate(CharSequence str, int from, StringBuilder sb) {
+		int len = str.length();
+		int i = from;
+		int plain = from;
+		while (i < len) {
+			Token t = match(str, i, len);
+			if (t == null) {
+				i++;
+			} else {
+				if (plain < i) {
+					sb.append(str, plain, i);
+				}
+				sb.append(t.replacement);
+				i += t.token.length();
+				plain = i;
+			}
+		}
+		if (plain < len) {
+			sb.append(str, plain, len);
+		}
+
+		return sb;
+	}
+
+	private int indexOfToken(CharSequence str, int from) {
+		int len = str.length();
+		for (int i = from; i < len; i++) {
+			if (match(str, i, len) != null) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private Token match(CharSequence str, int idx, int len) {
+		char c = str.charAt(idx);
+		Token[] tokens = c < TABLE_SIZE ? asciiTokens[c] : otherTokens.isEmpty() ? null : otherTokens.get(c);
+		if (tokens == null) {
+			return null;
+		}
+		for (Token t : tokens) {
+			if (t.matches(str, idx, len)) {
+				return t;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether translator has any replacement defined.
+	 *
+	 * @return {@code true} if translator has no replacements, {@code false} - otherwise
+	 */
+	public boolean isEmpty() {
+		return empty;
+	}
+
+	/**
+	 * Checks whether translator has any token longer than single char.
+	 *
+	 * @return {@code true} if translator has multi char tokens, {@code false} - otherwise
+	 */
+	public boolean hasMultiCharTokens() {
+		return multiCharTokens;
+	}
+
+	/**
+	 * Checks whether translator leaves string representations of primitive numbers (including {@code "NaN"},
+	 * {@code "Infinity"} and exponent notation) unchanged, i.e. no token starts with symbol used in such
+	 * representations.
+	 *
+	 * @return {@code true} if numbers are not affected by translator, {@code false} - otherwise
+	 */
+	public boolean isNumberSafe() {
+		return numberSafe;
+	}
+
+	private static class Token implements Comparable<Token> {
+		private final String token;
+		private final String replacement;
+
+		private Token(String token, String replacement) {
+			this.token = token;
+			this.replacement = replacement;
+		}
+
+		private boolean matches(CharSequence str, int idx, int len) {
+			int tLen = token.length();
+			if (idx + tLen > len) {
+				return false;
+			}
+			for (int i = 1; i < tLen; i++) {
+				if (str.charAt(idx + i) != token.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int compareTo(Token o) {
+			// longest token first
+			return o.token.length() - token.length();
+		}
+	}
+}
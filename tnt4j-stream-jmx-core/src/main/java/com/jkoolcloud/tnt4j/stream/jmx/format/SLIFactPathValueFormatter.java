@@ -48,7 +48,7 @@ public class SLIFactPathValueFormatter extends FactPathValueFormatter {
 			for (String pKey : levelAttrKeys) {
 				pv = (String) objNameProps.remove(pKey);
 				if (!Utils.isEmpty(pv) && !"null".equals(pv)) {
-					pv = Utils.replace(pv, keyReplacements);
+					pv = keyTranslator.translate(pv);
 					if (pv.startsWith(PATH_DELIM)) {
 						pv = pv.substring(1);
 					}
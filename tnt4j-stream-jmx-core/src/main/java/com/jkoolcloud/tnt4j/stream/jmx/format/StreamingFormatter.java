@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jkoolcloud.tnt4j.stream.jmx.format;
+
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.core.Snapshot;
+import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.source.Source;
+import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
+import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
+
+/**
+ * This interface defines event formatter able to append formatted output directly to sink provided (and reused) string
+ * builder, without making intermediate {@link String} instances.
+ *
+ * @version $Revision: 1 $
+ *
+ * @see com.jkoolcloud.tnt4j.stream.jmx.sink.ChannelEventSink
+ */
+public interface StreamingFormatter extends EventFormatter {
+	/**
+	 * Format a given {@link TrackingEvent} and append it to provided string builder.
+	 *
+	 * @param event
+	 *            tracking event instance to be formatted
+	 * @param out
+	 *            string builder to append
+	 * @return appended string builder instance
+	 */
+	StringBuilder format(TrackingEvent event, StringBuilder out);
+
+	/**
+	 * Format a given {@link TrackingActivity} and append it to provided string builder.
+	 *
+	 * @param activity
+	 *            tracking activity instance to be formatted
+	 * @param out
+	 *            string builder to append
+	 * @return appended string builder instance
+	 */
+	StringBuilder format(TrackingActivity activity, StringBuilder out);
+
+	/**
+	 * Format a given {@link Snapshot} and append it to provided string builder.
+	 *
+	 * @param snapshot
+	 *            snapshot instance to be formatted
+	 * @param out
+	 *            string builder to append
+	 * @return appended string builder instance
+	 */
+	StringBuilder format(Snapshot snapshot, StringBuilder out);
+
+	/**
+	 * Format a given message with arguments and append it to provided string builder.
+	 *
+	 * @param out
+	 *            string builder to append
+	 * @param ttl
+	 *            time to live in seconds
+	 * @param source
+	 *            message source
+	 * @param level
+	 *            severity level
+	 * @param msg
+	 *            message pattern
+	 * @param args
+	 *            message arguments
+	 * @return appended string builder instance
+	 */
+	StringBuilder format(StringBuilder out, long ttl, Source source, OpLevel level, String msg, Object... args);
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.stream.jmx.scheduler;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+
+import com.jkoolcloud.tnt4j.stream.jmx.core.SampleContext;
+import com.jkoolcloud.tnt4j.stream.jmx.utils.Utils;
+
+/**
+ * <p>
+ * This class defines adaptive sampling period policy used by {@link SchedulerImpl}. Policy stretches sampling period
+ * when smoothed (EWMA) sampling cycle cost exceeds configured fraction of current period, or when smoothed (EWMA)
+ * sampled JVM process CPU load (read from {@code java.lang:type=OperatingSystem} MBean attribute
+ * {@code ProcessCpuLoad}) exceeds configured threshold. When sampling gets cheap again, period is shrunk back toward
+ * configured minimal period.
+ * </p>
+ * Period changes are bounded: every change is made by a fixed step factor, period is kept within range of
+ * {@code [minPeriod, minPeriod * maxPeriodFactor]}, and next change can be made only after few cycles, to let
+ * smoothed cycle cost reflect changed period.
+ *
+ * @see SchedulerImpl
+ *
+ * @version $Revision: 1 $
+ */
+public class AdaptivePeriodPolicy {
+	/**
+	 * System property defining whether to use adaptive sampling period.
+	 */
+	public static final String PROP_ADAPTIVE_PERIOD = "com.jkoolcloud.tnt4j.stream.jmx.sampler.adaptivePeriod";
+	/**
+	 * System property defining maximal sampling period as multiple of configured sampling period.
+	 */
+	public static final String PROP_MAX_PERIOD_FACTOR = "com.jkoolcloud.tnt4j.stream.jmx.sampler.adaptiveMaxPeriodFactor";
+	/**
+	 * System property defining fraction of sampling period sampling cycle cost may take before period gets stretched.
+	 */
+	public static final String PROP_COST_FRACTION = "com.jkoolcloud.tnt4j.stream.jmx.sampler.adaptiveCostFraction";
+	/**
+	 * System property defining sampled JVM process CPU load threshold (in range {@code [0, 1]}) above which period
+	 * gets stretched.
+	 */
+	public static final String PROP_CPU_THRESHOLD = "com.jkoolcloud.tnt4j.stream.jmx.sampler.adaptiveCpuThreshold";
+
+	private static final String OS_MBEAN_NAME = "java.lang:type=OperatingSystem";
+	private static final String CPU_LOAD_ATTR = "ProcessCpuLoad";
+
+	private static final double EWMA_ALPHA = 0.3;
+	private static final double STRETCH_FACTOR = 1.5;
+	private static final double SHRINK_FACTOR = 0.8;
+	private static final double COST_RELAX_RATIO = 0.5;
+	private static final double CPU_RELAX_RATIO = 0.75;
+	private static final int COOLDOWN_CYCLES = 3;
+
+	private final long minPeriod;
+	private double maxPeriodFactor = 10.0;
+	private double costFraction = 0.25;
+	private double cpuThreshold = 0.8;
+
+	private long period;
+	private double avgCostMs = -1;
+	private double lastCpuLoad = -1;
+	private double avgCpuLoad = -1;
+	private long lastSampleCount = 0;
+	private int cyclesSinceChange = 0;
+	private boolean cpuAvailable = true;
+
+	/**
+	 * Create new instance of {@code AdaptivePeriodPolicy} with a given minimal sampling period. Policy parameters are
+	 * loaded from System properties.
+	 *
+	 * @param minPeriod
+	 *            minimal (configured) sampling period in milliseconds
+	 */
+	public AdaptivePeriodPolicy(long minPeriod) {
+		this.minPeriod = minPeriod;
+		this.period = minPeriod;
+		maxPeriodFactor = Utils.getDouble(PROP_MAX_PERIOD_FACTOR, System.getProperties(), maxPeriodFactor);
+		costFraction = Utils.getDouble(PROP_COST_FRACTION, System.getProperties(), costFraction);
+		cpuThreshold = Utils.getDouble(PROP_CPU_THRESHOLD, System.getProperties(), cpuThreshold);
+	}
+
+	/**
+	 * Checks whether adaptive sampling period is enabled by System properties.
+	 *
+	 * @return {@code true} if adaptive sampling period is enabled, {@code false} - otherwise
+	 */
+	public static boolean isEnabled() {
+		return Utils.getBoolean(PROP_ADAPTIVE_PERIOD, System.getProperties(), false);
+	}
+
+	/**
+	 * Evaluates last sampling cycle cost and sampled JVM CPU load and resolves sampling period for next cycles.
+	 *
+	 * @param context
+	 *            sample context
+	 * @return sampling period in milliseconds to be used for next cycles
+	 */
+	public long evaluate(SampleContext context) {
+		long sampleCount = context.getSampleCount();
+		if (sampleCount == lastSampleCount) { // cycle was skipped
+			return period;
+		}
+		lastSampleCount = sampleCount;
+
+		double costMs = context.getLastSampleUsec() / 1000.0;
+		avgCostMs = avgCostMs < 0 ? costMs : EWMA_ALPHA * costMs + (1 - EWMA_ALPHA) * avgCostMs;
+		lastCpuLoad = readCpuLoad(context.getMBeanServer());
+		if (lastCpuLoad >= 0) {
+			avgCpuLoad = avgCpuLoad < 0 ? lastCpuLoad : EWMA_ALPHA * lastCpuLoad + (1 - EWMA_ALPHA) * avgCpuLoad;
+		} else {
+			avgCpuLoad = -1; // do not keep stretching period on stale CPU load
+		}
+
+		if (++cyclesSinceChange < COOLDOWN_CYCLES) {
+			return period;
+		}
+
+		long maxPeriod = (long) (minPeriod * Math.max(maxPeriodFactor, 1.0));
+		long newPeriod = period;
+		if (avgCostMs > costFraction * period || avgCpuLoad > cpuThreshold) {
+			newPeriod = Math.min((long) (period * STRETCH_FACTOR), maxPeriod);
+		} else if (avgCostMs < COST_RELAX_RATIO * costFraction * period
+				&& avgCpuLoad < CPU_RELAX_RATIO * cpuThreshold) {
+			newPeriod = Math.max((long) (period * SHRINK_FACTOR), minPeriod);
+		}
+
+		if (newPeriod != period) {
+			period = newPeriod;
+			cyclesSinceChange = 0;
+		}
+		return period;
+	}
+
+	private double readCpuLoad(MBeanServerConnection mbeanServer) {
+		if (!cpuAvailable || mbeanServer == null) {
+			return -1;
+		}
+		try {
+			Object load = mbeanServer.getAttribute(new ObjectName(OS_MBEAN_NAME), CPU_LOAD_ATTR);
+			return load instanceof Number ? ((Number) load).doubleValue() : -1;
+		} catch (AttributeNotFoundException exc) {
+			cpuAvailable = false; // attribute is not supported by sampled JVM
+			return -1;
+		} catch (InstanceNotFoundException exc) {
+			cpuAvailable = false; // MBean is not registered by sampled JVM
+			return -1;
+		} catch (Throwable exc) {
+			return -1; // transient failure, retry on next cycle
+		}
+	}
+
+	/**
+	 * Returns current sampling period.
+	 *
+	 * @return current sampling period in milliseconds
+	 */
+	public long getPeriod() {
+		return period;
+	}
+
+	/**
+	 * Returns smoothed sampling cycle cost.
+	 *
+	 * @return smoothed sampling cycle cost in milliseconds
+	 */
+	public double getAverageCost() {
+		return avgCostMs;
+	}
+
+	/**
+	 * Returns last read sampled JVM process CPU load.
+	 *
+	 * @return last read CPU load in range {@code [0, 1]}, or negative value if CPU load is not available
+	 */
+	public double getLastCpuLoad() {
+		return lastCpuLoad;
+	}
+
+	/**
+	 * Returns smoothed sampled JVM process CPU load.
+	 *
+	 * @return smoothed CPU load in range {@code [0, 1]}, or negative value if CPU load is not available
+	 */
+	public double getAverageCpuLoad() {
+		return avgCpuLoad;
+	}
+}
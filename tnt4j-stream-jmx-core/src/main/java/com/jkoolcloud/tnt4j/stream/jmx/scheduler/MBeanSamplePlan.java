@@ -0,0 +1,410 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.stream.jmx.scheduler;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+
+import com.jkoolcloud.tnt4j.core.Property;
+
+/**
+ * <p>
+ * This class defines compiled sampling plan of single MBean: set of MBean attributes passing sample listeners
+ * pre-sampling checks (readable and not excluded) and their silence flags.
+ * </p>
+ * Plan is compiled by {@link SampleHandlerImpl} on first MBean sampling after MBean registration and recompiled only
+ * when plan gets invalidated: attribute gets excluded or silenced, or sample listeners set changes.
+ * <p>
+ * When sampling handler runs in delta mode, plan also keeps last emitted values of MBean snapshot properties. Values
+ * are kept in primitive columns frame: every property key is bound to frame slot having value type tag, and primitive
+ * values (integral numbers, booleans, floating point numbers) are stored in parallel {@code long[]}/{@code double[]}
+ * columns, overwritten in place every cycle. This way sampled values boxes are not retained between cycles and no
+ * objects are made while comparing values. Strings and other immutable scalars are stored as references and compared
+ * using {@link Object#equals(Object)}. Any other values (arrays, mutable objects) can't be reliably compared with
+ * previous ones, so those are never treated as unchanged and are always emitted.
+ * <p>
+ * Plan also profiles attributes sampling cost: smoothed (EWMA) sampling time is kept for every plan attribute.
+ * Attributes having sampling time above defined threshold can be demoted to slow sampling tier, where attribute is
+ * sampled only every Nth MBean sampling.
+ * <p>
+ * Plan also caches MBean snapshot properties order by property key, so snapshot properties can be ordered in linear
+ * time while MBean snapshot keys set remains same.
+ *
+ * @see SampleHandlerImpl
+ *
+ * @version $Revision: 1 $
+ */
+class MBeanSamplePlan {
+	private static final MBeanAttributeInfo[] NO_ATTRS = new MBeanAttributeInfo[0];
+	private static final int MIN_SLOTS = 16;
+
+	private static final byte SLOT_NULL = 1;
+	private static final byte SLOT_LONG = 2;
+	private static final byte SLOT_BOOLEAN = 3;
+	private static final byte SLOT_DOUBLE = 4;
+	private static final byte SLOT_REFERENCE = 5;
+	private static final byte SLOT_OTHER = 6;
+	private static final int MIN_COST_SAMPLES = 3;
+	private static final Comparator<Property> KEY_COMPARATOR = new Comparator<Property>() {
+		@Override
+		public int compare(Property p1, Property p2) {
+			return p1.getKey().compareTo(p2.getKey());
+		}
+	};
+
+	private static final int MAX_RANKED_KEYS_FACTOR = 2;
+	private static final int MIN_RANKED_KEYS = 64;
+
+	final ObjectName name;
+	final MBeanInfo info;
+	final long period;
+	long lastSampleTime = 0;
+
+	MBeanAttributeInfo[] attrs = NO_ATTRS;
+	String[] attrNames = new String[0];
+	boolean[] silence = new boolean[0];
+	int excludedCount = 0;
+
+	long[] avgCostNanos = new long[0];
+	int[] costSamples = new int[0];
+	boolean[] demoted = new boolean[0];
+	String[] fastAttrNames = new String[0];
+	int demotedCount = 0;
+	long cycles = 0;
+
+	private volatile boolean valid = false;
+	private Map<String, Integer> valueSlots;
+	private byte[] slotTypes;
+	private long[] slotLongs;
+	private double[] slotDoubles;
+	private Object[] slotRefs;
+	private Map<String, Integer> keyRanks;
+	private Property[] rankSlots;
+
+	/**
+	 * Create new instance of not yet compiled MBean sampling plan.
+	 *
+	 * @param name
+	 *            MBean object name
+	 * @param info
+	 *            MBean info
+	 * @param period
+	 *            MBean filter group defined sampling period in milliseconds, {@code 0} - to use scheduler period
+	 */
+	MBeanSamplePlan(ObjectName name, MBeanInfo info, long period) {
+		this.name = name;
+		this.info = info;
+		this.period = period;
+	}
+
+	/**
+	 * Fills in plan with compiled attributes set.
+	 *
+	 * @param incAttrs
+	 *            list of attributes to sample
+	 * @param silenceAttrs
+	 *            list of attributes silence flags
+	 * @param excCount
+	 *            number of attributes excluded from sampling
+	 */
+	void compile(List<MBeanAttributeInfo> incAttrs, List<Boolean> silenceAttrs, int excCount) {
+		attrs = incAttrs.toArray(new MBeanAttributeInfo[incAttrs.size()]);
+		attrNames = new String[attrs.length];
+		silence = new boolean[attrs.length];
+		for (int i = 0; i < attrs.length; i++) {
+			attrNames[i] = attrs[i].getName();
+			silence[i] = silenceAttrs.get(i);
+		}
+		excludedCount = excCount;
+		avgCostNanos = new long[attrs.length];
+		costSamples = new int[attrs.length];
+		demoted = new boolean[attrs.length];
+		fastAttrNames = attrNames;
+		demotedCount = 0;
+		valid = true;
+	}
+
+	/**
+	 * Records attribute sampling time.
+	 *
+	 * @param idx
+	 *            plan attribute index
+	 * @param nanos
+	 *            attribute sampling time in nanoseconds
+	 */
+	void recordCost(int idx, long nanos) {
+		avgCostNanos[idx] = costSamples[idx] == 0 ? nanos : avgCostNanos[idx] + (nanos - avgCostNanos[idx]) / 4;
+		costSamples[idx]++;
+	}
+
+	/**
+	 * Checks whether plan attribute shall be sampled in current MBean sampling cycle.
+	 *
+	 * @param idx
+	 *            plan attribute index
+	 * @param tierFactor
+	 *            slow sampling tier factor: demoted attribute is sampled every {@code tierFactor} cycle
+	 * @return {@code true} if attribute shall be sampled, {@code false} - otherwise
+	 */
+	boolean isSampled(int idx, int tierFactor) {
+		return !demoted[idx] || isSlowTierCycle(tierFactor);
+	}
+
+	/**
+	 * Checks whether slow sampling tier attributes are sampled in current MBean sampling cycle.
+	 *
+	 * @param tierFactor
+	 *            slow sampling tier factor
+	 * @return {@code true} if slow tier attributes are sampled, {@code false} - otherwise
+	 */
+	boolean isSlowTierCycle(int tierFactor) {
+		return tierFactor <= 1 || cycles % tierFactor == 1;
+	}
+
+	/**
+	 * Moves attributes having smoothed sampling time above threshold to slow sampling tier, and ones having it below
+	 * half of threshold back to regular tier.
+	 *
+	 * @param thresholdNanos
+	 *            attribute sampling time threshold in nanoseconds
+	 */
+	void updateTiers(long thresholdNanos) {
+		boolean changed = false;
+		for (int i = 0; i < attrs.length; i++) {
+			if (costSamples[i] < MIN_COST_SAMPLES) {
+				continue;
+			}
+			if (!demoted[i] && avgCostNanos[i] > thresholdNanos) {
+				demoted[i] = true;
+				demotedCount++;
+				changed = true;
+			} else if (demoted[i] && avgCostNanos[i] < thresholdNanos / 2) {
+				demoted[i] = false;
+				demotedCount--;
+				changed = true;
+			}
+		}
+		if (changed) {
+			String[] names = new String[attrs.length - demotedCount];
+			for (int i = 0, n = 0; i < attrs.length; i++) {
+				if (!demoted[i]) {
+					names[n++] = attrNames[i];
+				}
+			}
+			fastAttrNames = names;
+		}
+	}
+
+	/**
+	 * Marks plan to be recompiled on next MBean sampling.
+	 */
+	void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * Checks whether plan is compiled and still valid.
+	 *
+	 * @return {@code true} if plan is valid, {@code false} - otherwise
+	 */
+	boolean isValid() {
+		return valid;
+	}
+
+	/**
+	 * Checks whether MBean is due to be sampled.
+	 *
+	 * @param now
+	 *            current time in milliseconds
+	 * @param defPeriod
+	 *            default sampling period in milliseconds, used when plan has no own sampling period defined
+	 * @param tolerance
+	 *            time tolerance in milliseconds, to compensate scheduling jitter
+	 * @return {@code true} if MBean sampling period has elapsed since last sampling, {@code false} - otherwise
+	 */
+	boolean isDue(long now, long defPeriod, long tolerance) {
+		long p = period > 0 ? period : defPeriod;
+		return p <= 0 || now - lastSampleTime >= p - tolerance;
+	}
+
+	/**
+	 * Checks whether snapshot property value has changed since last emitted value and stores provided value as last
+	 * emitted one.
+	 *
+	 * @param key
+	 *            snapshot property key
+	 * @param value
+	 *            snapshot property value
+	 * @return {@code true} if value has changed or was not emitted before, {@code false} - otherwise
+	 */
+	boolean updateLastValue(String key, Object value) {
+		if (valueSlots == null) {
+			int size = Math.max(attrs.length * 2, MIN_SLOTS);
+			valueSlots = new HashMap<String, Integer>(size * 2);
+			slotTypes = new byte[size];
+			slotLongs = new long[size];
+			slotDoubles = new double[size];
+			slotRefs = new Object[size];
+		}
+		Integer slot = valueSlots.get(key);
+		if (slot == null) {
+			slot = valueSlots.size();
+			valueSlots.put(key, slot);
+			if (slot >= slotTypes.length) {
+				int size = slotTypes.length * 2;
+				slotTypes = Arrays.copyOf(slotTypes, size);
+				slotLongs = Arrays.copyOf(slotLongs, size);
+				slotDoubles = Arrays.copyOf(slotDoubles, size);
+				slotRefs = Arrays.copyOf(slotRefs, size);
+			}
+		}
+		return updateSlot(slot, value);
+	}
+
+	private boolean updateSlot(int slot, Object value) {
+		byte lastType = slotTypes[slot];
+		if (value == null) {
+			slotTypes[slot] = SLOT_NULL;
+			slotRefs[slot] = null;
+			return lastType != SLOT_NULL;
+		}
+		if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			return updateLong(slot, lastType, SLOT_LONG, ((Number) value).longValue());
+		}
+		if (value instanceof Double || value instanceof Float) {
+			double d = ((Number) value).doubleValue();
+			boolean changed = lastType != SLOT_DOUBLE
+					|| Double.doubleToLongBits(slotDoubles[slot]) != Double.doubleToLongBits(d);
+			slotTypes[slot] = SLOT_DOUBLE;
+			slotDoubles[slot] = d;
+			slotRefs[slot] = null;
+			return changed;
+		}
+		if (value instanceof Boolean) {
+			return updateLong(slot, lastType, SLOT_BOOLEAN, (Boolean) value ? 1L : 0L);
+		}
+		if (isImmutableScalar(value)) {
+			boolean changed = lastType != SLOT_REFERENCE || !value.equals(slotRefs[slot]);
+			slotTypes[slot] = SLOT_REFERENCE;
+			slotRefs[slot] = value;
+			return changed;
+		}
+		// not comparable value is always treated as changed
+		slotTypes[slot] = SLOT_OTHER;
+		slotRefs[slot] = null;
+		return true;
+	}
+
+	private boolean updateLong(int slot, byte lastType, byte type, long value) {
+		boolean changed = lastType != type || slotLongs[slot] != value;
+		slotTypes[slot] = type;
+		slotLongs[slot] = value;
+		slotRefs[slot] = null;
+		return changed;
+	}
+
+	/**
+	 * Clears all stored last emitted values.
+	 */
+	void clearLastValues() {
+		valueSlots = null;
+		slotTypes = null;
+		slotLongs = null;
+		slotDoubles = null;
+		slotRefs = null;
+	}
+
+	/**
+	 * Orders provided snapshot properties array by property key. Properties ranks cached from previous orderings are
+	 * used to place properties, so array is sorted only when it has some new property key. New keys are then merged
+	 * into cached ranks.
+	 *
+	 * @param pArray
+	 *            snapshot properties array to order
+	 * @return {@code true} if properties order has changed, {@code false} - if properties were already ordered
+	 */
+	boolean orderProperties(Property[] pArray) {
+		if (keyRanks != null && pArray.length <= rankSlots.length) {
+			boolean known = true;
+			for (Property p : pArray) {
+				Integer rank = keyRanks.get(p.getKey());
+				if (rank == null || rankSlots[rank] != null) {
+					known = false;
+					break;
+				}
+				rankSlots[rank] = p;
+			}
+			if (known) {
+				boolean changed = false;
+				for (int i = 0, n = 0; i < rankSlots.length; i++) {
+					if (rankSlots[i] != null) {
+						changed |= pArray[n] != rankSlots[i];
+						pArray[n++] = rankSlots[i];
+						rankSlots[i] = null;
+					}
+				}
+				return changed;
+			}
+			Arrays.fill(rankSlots, null);
+		}
+
+		Property[] sorted = pArray.clone();
+		Arrays.sort(sorted, KEY_COMPARATOR);
+		boolean changed = false;
+		for (int i = 0; i < sorted.length; i++) {
+			changed |= pArray[i] != sorted[i];
+			pArray[i] = sorted[i];
+		}
+		rankKeys(sorted);
+		return changed;
+	}
+
+	/**
+	 * Merges provided ordered properties keys into cached keys ranks, so snapshots having any subset of already seen
+	 * keys can be ordered without sorting. Ranks are rebuilt from provided keys only, if merged keys set grows too large
+	 * compared to provided one (e.g. when keys are changing from cycle to cycle).
+	 *
+	 * @param sorted
+	 *            properties array ordered by property key
+	 */
+	private void rankKeys(Property[] sorted) {
+		Set<String> keys = new TreeSet<String>();
+		if (keyRanks != null && keyRanks.size() + sorted.length <= MAX_RANKED_KEYS_FACTOR * sorted.length
+				+ MIN_RANKED_KEYS) {
+			keys.addAll(keyRanks.keySet());
+		}
+		for (Property p : sorted) {
+			keys.add(p.getKey());
+		}
+
+		keyRanks = new HashMap<String, Integer>(keys.size() * 2);
+		int rank = 0;
+		for (String key : keys) {
+			keyRanks.put(key, rank++);
+		}
+		rankSlots = new Property[keys.size()];
+	}
+
+	private static boolean isImmutableScalar(Object value) {
+		return value instanceof String || value instanceof Character || value instanceof BigInteger
+				|| value instanceof BigDecimal || value instanceof ObjectName;
+	}
+}
@@ -19,7 +19,9 @@ package com.jkoolcloud.tnt4j.stream.jmx.scheduler;
 import java.security.AccessController;
 import java.security.PrivilegedExceptionAction;
 
+import javax.management.AttributeList;
 import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
 
 import com.jkoolcloud.tnt4j.stream.jmx.conditions.AttributeSample;
 
@@ -40,6 +42,11 @@ public class PrivilegedSampleHandlerImpl extends SampleHandlerImpl {
 		return AccessController.doPrivileged(new SamplePrivilegedAction(sample));
 	}
 
+	@Override
+	protected AttributeList getAttributes(ObjectName name, String[] attrNames) throws Exception {
+		return AccessController.doPrivileged(new BulkSamplePrivilegedAction(name, attrNames));
+	}
+
 	private static class SamplePrivilegedAction implements PrivilegedExceptionAction<Object> {
 		private final AttributeSample sample;
 
@@ -52,4 +59,19 @@ public class PrivilegedSampleHandlerImpl extends SampleHandlerImpl {
 			return sample.sample();
 		}
 	}
+
+	private class BulkSamplePrivilegedAction implements PrivilegedExceptionAction<AttributeList> {
+		private final ObjectName name;
+		private final String[] attrNames;
+
+		BulkSamplePrivilegedAction(ObjectName name, String[] attrNames) {
+			this.name = name;
+			this.attrNames = attrNames;
+		}
+
+		@Override
+		public AttributeList run() throws Exception {
+			return PrivilegedSampleHandlerImpl.super.getAttributes(name, attrNames);
+		}
+	}
 }
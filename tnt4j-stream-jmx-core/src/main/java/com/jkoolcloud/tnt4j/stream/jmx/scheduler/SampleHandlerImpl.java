@@ -17,8 +17,9 @@ package com.jkoolcloud.tnt4j.stream.jmx.scheduler;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.management.*;
@@ -26,6 +27,8 @@ import javax.management.relation.MBeanServerNotificationFilter;
 
 import com.jkoolcloud.tnt4j.core.Activity;
 import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.core.OpType;
+import com.jkoolcloud.tnt4j.core.Property;
 import com.jkoolcloud.tnt4j.core.PropertySnapshot;
 import com.jkoolcloud.tnt4j.core.Snapshot;
 import com.jkoolcloud.tnt4j.stream.jmx.conditions.*;
@@ -59,13 +62,93 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 	public static String STAT_TOTAL_METRIC_COUNT = "total.metric.count";
 	public static String STAT_LAST_METRIC_COUNT = "last.metric.count";
 	public static String STAT_SAMPLE_TIME_USEC = "sample.time.usec";
+	public static String STAT_BULK_SAMPLING_MODE = "bulk.sampling.mode";
+	public static String STAT_SAMPLING_THREADS = "sampling.threads";
+	public static String STAT_DELTA_MODE = "delta.mode";
+	public static String STAT_DELTA_FULL_REFRESH_CYCLES = "delta.full.refresh.cycles";
+	public static String STAT_TOTAL_DELTA_DROP_COUNT = "total.delta.drop.count";
+	public static String STAT_LAST_MBEAN_COUNT = "last.mbean.count";
+	public static String STAT_CYCLE_TIME_BUDGET_MSEC = "cycle.time.budget.msec";
+	public static String STAT_TOTAL_OVERRUN_COUNT = "total.overrun.count";
+	public static String STAT_TOTAL_SKIPPED_CYCLE_COUNT = "total.skipped.cycle.count";
+	public static String STAT_LAST_DEFERRED_MBEAN_COUNT = "last.deferred.mbean.count";
+	public static String STAT_TOTAL_DEFERRED_MBEAN_COUNT = "total.deferred.mbean.count";
+	public static String STAT_DEADLINE_HIT_RATE = "deadline.hit.rate";
+	public static String STAT_SLOW_ATTR_THRESHOLD_USEC = "slow.attr.threshold.usec";
+	public static String STAT_DEMOTED_ATTR_COUNT = "demoted.attr.count";
+	public static String STAT_SLOW_ATTR_PREFIX = "slow.attr.";
+	public static String STAT_SORTED_SNAPSHOTS_MODE = "sorted.snapshots.mode";
+
+	/**
+	 * Delimiter of MBean include filter and filter group sampling period in milliseconds, e.g.
+	 * {@code java.lang:*@5000}.
+	 */
+	public static final char FILTER_PERIOD_DELIM = '@';
+
+	/**
+	 * System property defining whether to read all MBean attributes using single
+	 * {@link MBeanServerConnection#getAttributes(ObjectName, String[])} call.
+	 */
+	public static final String PROP_BULK_SAMPLING = "com.jkoolcloud.tnt4j.stream.jmx.sampler.bulkSampling";
+	/**
+	 * System property defining number of threads sampling MBeans concurrently.
+	 */
+	public static final String PROP_SAMPLING_THREADS = "com.jkoolcloud.tnt4j.stream.jmx.sampler.samplingThreads";
+	/**
+	 * System property defining whether to emit only MBean attribute values changed since last emission.
+	 */
+	public static final String PROP_DELTA_MODE = "com.jkoolcloud.tnt4j.stream.jmx.sampler.deltaMode";
+	/**
+	 * System property defining number of sampling cycles after which all MBean attribute values are emitted in delta
+	 * mode.
+	 */
+	public static final String PROP_DELTA_FULL_REFRESH_CYCLES = "com.jkoolcloud.tnt4j.stream.jmx.sampler.deltaFullRefreshCycles";
+	/**
+	 * System property defining sampling cycle time budget in milliseconds. Value {@code 0} means budget is equal to
+	 * sampling period, negative value (default) means cycle time is not bounded.
+	 */
+	public static final String PROP_CYCLE_TIME_BUDGET = "com.jkoolcloud.tnt4j.stream.jmx.sampler.cycleTimeBudget";
+	/**
+	 * System property defining attribute sampling time threshold in milliseconds, above which attribute is demoted to
+	 * slow sampling tier.
+	 */
+	public static final String PROP_SLOW_ATTR_THRESHOLD = "com.jkoolcloud.tnt4j.stream.jmx.sampler.slowAttributeThreshold";
+	/**
+	 * System property defining how often (every Nth MBean sampling) slow sampling tier attributes are sampled.
+	 */
+	public static final String PROP_SLOW_ATTR_TIER_FACTOR = "com.jkoolcloud.tnt4j.stream.jmx.sampler.slowAttributeTierFactor";
+	/**
+	 * System property defining number of slowest to sample attributes reported in sampling statistics.
+	 */
+	public static final String PROP_SLOW_ATTR_TOP_COUNT = "com.jkoolcloud.tnt4j.stream.jmx.sampler.slowAttributeTopCount";
+	/**
+	 * System property defining whether MBean snapshot properties shall be ordered by property key.
+	 */
+	public static final String PROP_SORTED_SNAPSHOTS = "com.jkoolcloud.tnt4j.stream.jmx.sampler.sortedSnapshots";
 
 	private final ReentrantLock lock = new ReentrantLock();
 
 	String mbeanIncFilter, mbeanExcFilter;
 	long sampleCount = 0, totalMetricCount = 0, totalActionCount = 0;
+	private final AtomicLong cycleActionCount = new AtomicLong();
+	private final AtomicLong pendingSkipCount = new AtomicLong();
 	long lastMetricCount = 0, lastSampleTimeUsec = 0;
 	long noopCount = 0, excCount = 0, errorCount = 0;
+	long deltaDropCount = 0, lastMBeanCount = 0;
+	long defaultPeriod = 0, tickPeriod = 0;
+	volatile long adoptedTickPeriod = 0;
+	long cycleTimeBudget = -1, lastCycleStartNanos = 0;
+	long overrunCount = 0, skippedCycleCount = 0, deadlineHitCount = 0;
+	long lastDeferredCount = 0, totalDeferredCount = 0;
+	long slowAttrThreshold = 0;
+	int slowAttrTierFactor = 10, slowAttrTopCount = 5;
+
+	boolean bulkSampling = false;
+	int samplingThreads = 1;
+	boolean deltaMode = false;
+	int deltaFullRefreshCycles = 10;
+	boolean sortedSnapshots = true;
+	private ExecutorService samplingExecutor;
 
 	MBeanServerConnection mbeanServer;
 	SampleContext context;
@@ -73,10 +156,14 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 
 	MBeanServerNotificationFilter MBeanFilter;
 	List<ObjectName> iFilters = new ArrayList<ObjectName>(5), eFilters = new ArrayList<ObjectName>(5);
-	Map<AttributeCondition, AttributeAction> conditions = new LinkedHashMap<AttributeCondition, AttributeAction>(89);
-	ConcurrentHashMap<ObjectName, MBeanInfo> mbeans = new ConcurrentHashMap<ObjectName, MBeanInfo>(89);
+	List<Long> iFilterPeriods = new ArrayList<Long>(5);
+	List<MBeanSamplePlan> deferred = new ArrayList<MBeanSamplePlan>();
+	ConditionRegistry conditions = new ConditionRegistry();
+	ConcurrentHashMap<ObjectName, MBeanSamplePlan> mbeans = new ConcurrentHashMap<ObjectName, MBeanSamplePlan>(89);
 
-	final List<SampleListener> listeners = new ArrayList<SampleListener>(5);
+	private final Object listenersLock = new Object();
+	volatile SampleListener[] listeners = new SampleListener[0];
+	List<NotificationListener> mbeanChangeListeners = new CopyOnWriteArrayList<NotificationListener>();
 
 	/**
 	 * Create new instance of {@code SampleHandlerImpl} with a given MBean server and a set of filters.
@@ -92,9 +179,236 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 		mbeanServer = mServerConn;
 		mbeanIncFilter = incFilter;
 		mbeanExcFilter = excFilter;
+		bulkSampling = Utils.getBoolean(PROP_BULK_SAMPLING, System.getProperties(), bulkSampling);
+		samplingThreads = Utils.getInt(PROP_SAMPLING_THREADS, System.getProperties(), samplingThreads);
+		deltaMode = Utils.getBoolean(PROP_DELTA_MODE, System.getProperties(), deltaMode);
+		deltaFullRefreshCycles = Utils.getInt(PROP_DELTA_FULL_REFRESH_CYCLES, System.getProperties(),
+				deltaFullRefreshCycles);
+		cycleTimeBudget = Utils.getLong(PROP_CYCLE_TIME_BUDGET, System.getProperties(), cycleTimeBudget);
+		slowAttrThreshold = Utils.getLong(PROP_SLOW_ATTR_THRESHOLD, System.getProperties(), slowAttrThreshold);
+		slowAttrTierFactor = Utils.getInt(PROP_SLOW_ATTR_TIER_FACTOR, System.getProperties(), slowAttrTierFactor);
+		slowAttrTopCount = Utils.getInt(PROP_SLOW_ATTR_TOP_COUNT, System.getProperties(), slowAttrTopCount);
+		sortedSnapshots = Utils.getBoolean(PROP_SORTED_SNAPSHOTS, System.getProperties(), sortedSnapshots);
 		context = new SampleContextImpl(this);
 	}
 
+	/**
+	 * Sets whether to read all MBean attributes using single
+	 * {@link MBeanServerConnection#getAttributes(ObjectName, String[])} call instead of reading every attribute
+	 * separately. Attributes missing in bulk call returned list are read separately.
+	 *
+	 * @param bulkSampling
+	 *            {@code true} to read MBean attributes in bulk, {@code false} - to read every attribute separately
+	 */
+	public void setBulkSampling(boolean bulkSampling) {
+		this.bulkSampling = bulkSampling;
+	}
+
+	/**
+	 * Checks whether MBean attributes are read using single
+	 * {@link MBeanServerConnection#getAttributes(ObjectName, String[])} call.
+	 *
+	 * @return {@code true} if MBean attributes are read in bulk, {@code false} - otherwise
+	 */
+	public boolean isBulkSampling() {
+		return bulkSampling;
+	}
+
+	/**
+	 * Sets number of threads sampling disjoint sets of MBeans concurrently. Value {@code 1} (or less) means all MBeans
+	 * are sampled by scheduler thread.
+	 *
+	 * @param samplingThreads
+	 *            number of MBeans sampling threads
+	 */
+	public void setSamplingThreads(int samplingThreads) {
+		lock.lock();
+		try {
+			this.samplingThreads = samplingThreads;
+			shutdownExecutor();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns number of threads sampling disjoint sets of MBeans concurrently.
+	 *
+	 * @return number of MBeans sampling threads
+	 */
+	public int getSamplingThreads() {
+		return samplingThreads;
+	}
+
+	/**
+	 * Sets whether to emit only MBean attribute values changed since last emission. Unchanged values are dropped from
+	 * MBean snapshot, and snapshot having no changed values is not emitted at all.
+	 *
+	 * @param deltaMode
+	 *            {@code true} to emit only changed values, {@code false} - to emit all values
+	 *
+	 * @see #setDeltaFullRefreshCycles(int)
+	 */
+	public void setDeltaMode(boolean deltaMode) {
+		lock.lock();
+		try {
+			this.deltaMode = deltaMode;
+			if (!deltaMode) {
+				for (MBeanSamplePlan plan : mbeans.values()) {
+					plan.clearLastValues();
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Checks whether only MBean attribute values changed since last emission are emitted.
+	 *
+	 * @return {@code true} if only changed values are emitted, {@code false} - otherwise
+	 */
+	public boolean isDeltaMode() {
+		return deltaMode;
+	}
+
+	/**
+	 * Sets number of MBean samplings after which all MBean attribute values are emitted in delta mode. Value
+	 * {@code 0} (or less) means full refresh is never made.
+	 *
+	 * @param deltaFullRefreshCycles
+	 *            number of sampling cycles between full refreshes
+	 */
+	public void setDeltaFullRefreshCycles(int deltaFullRefreshCycles) {
+		this.deltaFullRefreshCycles = deltaFullRefreshCycles;
+	}
+
+	/**
+	 * Returns number of sampling cycles after which all MBean attribute values are emitted in delta mode.
+	 *
+	 * @return number of sampling cycles between full refreshes
+	 */
+	public int getDeltaFullRefreshCycles() {
+		return deltaFullRefreshCycles;
+	}
+
+	/**
+	 * Sets whether MBean snapshot properties shall be ordered by property key. Properties order of every MBean is
+	 * cached in MBean sampling plan, so in steady state ordering takes linear time and formatters expecting sorted
+	 * properties (e.g. {@link com.jkoolcloud.tnt4j.stream.jmx.format.FactPathValueFormatter}) need not to sort them.
+	 *
+	 * @param sortedSnapshots
+	 *            {@code true} to order snapshot properties by key, {@code false} - to keep sampling order
+	 */
+	public void setSortedSnapshots(boolean sortedSnapshots) {
+		this.sortedSnapshots = sortedSnapshots;
+	}
+
+	/**
+	 * Checks whether MBean snapshot properties are ordered by property key.
+	 *
+	 * @return {@code true} if snapshot properties are ordered by key, {@code false} - otherwise
+	 */
+	public boolean isSortedSnapshots() {
+		return sortedSnapshots;
+	}
+
+	/**
+	 * Sets sampling period of MBeans included by filters having no own sampling period defined. Value {@code 0} means
+	 * such MBeans are sampled every sampling cycle.
+	 *
+	 * @param period
+	 *            default sampling period in milliseconds
+	 */
+	public void setDefaultPeriod(long period) {
+		this.defaultPeriod = period;
+	}
+
+	/**
+	 * Returns sampling period of MBeans included by filters having no own sampling period defined.
+	 *
+	 * @return default sampling period in milliseconds
+	 */
+	public long getDefaultPeriod() {
+		return defaultPeriod;
+	}
+
+	/**
+	 * Sets sampling cycle time budget. MBeans not sampled until cycle deadline are deferred to the beginning of next
+	 * cycle. Value {@code 0} means budget is equal to scheduler sampling period, negative value (default) means cycle
+	 * time is not bounded.
+	 *
+	 * @param cycleTimeBudget
+	 *            sampling cycle time budget in milliseconds
+	 */
+	public void setCycleTimeBudget(long cycleTimeBudget) {
+		this.cycleTimeBudget = cycleTimeBudget;
+	}
+
+	/**
+	 * Returns sampling cycle time budget.
+	 *
+	 * @return sampling cycle time budget in milliseconds
+	 */
+	public long getCycleTimeBudget() {
+		return cycleTimeBudget;
+	}
+
+	/**
+	 * Sets attribute sampling time threshold, above which attribute is demoted to slow sampling tier. Value {@code 0}
+	 * (or less) means attributes are never demoted.
+	 *
+	 * @param slowAttrThreshold
+	 *            attribute sampling time threshold in milliseconds
+	 * @param tierFactor
+	 *            slow sampling tier factor: demoted attributes are sampled every {@code tierFactor} MBean sampling
+	 */
+	public void setSlowAttributeThreshold(long slowAttrThreshold, int tierFactor) {
+		this.slowAttrThreshold = slowAttrThreshold;
+		this.slowAttrTierFactor = tierFactor;
+	}
+
+	/**
+	 * Returns attribute sampling time threshold, above which attribute is demoted to slow sampling tier.
+	 *
+	 * @return attribute sampling time threshold in milliseconds
+	 */
+	public long getSlowAttributeThreshold() {
+		return slowAttrThreshold;
+	}
+
+	/**
+	 * Sets sampling tick period adopted by scheduler, e.g. when scheduler stretches sampling period using adaptive
+	 * sampling period policy. Value {@code 0} (or less) means tick period is minimal sampling period of all MBean
+	 * filter groups.
+	 *
+	 * @param tickPeriod
+	 *            scheduler adopted sampling tick period in milliseconds
+	 */
+	public void setTickPeriod(long tickPeriod) {
+		this.adoptedTickPeriod = tickPeriod;
+	}
+
+	/**
+	 * Returns effective sampling tick period: scheduler adopted one if set, or minimal sampling period of all MBean
+	 * filter groups otherwise.
+	 *
+	 * @return sampling tick period in milliseconds
+	 */
+	public long getTickPeriod() {
+		long adopted = adoptedTickPeriod;
+		return adopted > 0 ? adopted : tickPeriod;
+	}
+
+	/**
+	 * Resolves effective sampling cycle time budget.
+	 *
+	 * @return sampling cycle time budget in milliseconds, or {@code 0} if cycle time is not bounded
+	 */
+	private long getEffectiveTimeBudget() {
+		return cycleTimeBudget == 0 ? getTickPeriod() : Math.max(cycleTimeBudget, 0);
+	}
+
 	/**
 	 * Tokenize a given set of filters into JMX object names
 	 * 
@@ -102,13 +416,23 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 	 *            semicolon set of JMX filters
 	 * @param filters
 	 *            list of object names
+	 * @param periods
+	 *            list of filter groups sampling periods, or {@code null} if filters can't define sampling periods
 	 * @throws MalformedObjectNameException
 	 *             if filter defined object name is malformed
 	 */
-	private static void tokenizeFilters(String filter, List<ObjectName> filters) throws MalformedObjectNameException {
+	private static void tokenizeFilters(String filter, List<ObjectName> filters, List<Long> periods)
+			throws MalformedObjectNameException {
 		StringTokenizer itk = new StringTokenizer(filter, ";");
 		while (itk.hasMoreTokens()) {
 			String objName = itk.nextToken().trim();
+			if (periods != null) {
+				long period = getFilterPeriod(objName);
+				if (period > 0) {
+					objName = objName.substring(0, objName.lastIndexOf(FILTER_PERIOD_DELIM));
+				}
+				periods.add(period);
+			}
 			try {
 				filters.add(new ObjectName(objName));
 			} catch (MalformedObjectNameException exc) {
@@ -123,6 +447,52 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 		}
 	}
 
+	/**
+	 * Resolves filter group sampling period from MBean filter token, defined as {@code "objectNamePattern@periodMs"}.
+	 *
+	 * @param filterToken
+	 *            MBean filter token
+	 * @return filter group sampling period in milliseconds, or {@code 0} if filter token does not define period
+	 */
+	static long getFilterPeriod(String filterToken) {
+		int pIdx = filterToken.lastIndexOf(FILTER_PERIOD_DELIM);
+		if (pIdx <= 0 || pIdx == filterToken.length() - 1) {
+			return 0;
+		}
+		for (int i = pIdx + 1; i < filterToken.length(); i++) {
+			if (!Character.isDigit(filterToken.charAt(i))) {
+				return 0;
+			}
+		}
+		try {
+			return Long.parseLong(filterToken.substring(pIdx + 1));
+		} catch (NumberFormatException exc) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Resolves minimal sampling period of all MBean include filter groups. Filters having no own sampling period use
+	 * provided default period.
+	 *
+	 * @param incFilter
+	 *            MBean include filters semicolon separated
+	 * @param defPeriod
+	 *            default sampling period in milliseconds
+	 * @return minimal sampling period in milliseconds
+	 */
+	static long getMinFilterPeriod(String incFilter, long defPeriod) {
+		long minPeriod = Long.MAX_VALUE;
+		if (!Utils.isEmpty(incFilter)) {
+			StringTokenizer itk = new StringTokenizer(incFilter, ";");
+			while (itk.hasMoreTokens()) {
+				long period = getFilterPeriod(itk.nextToken().trim());
+				minPeriod = Math.min(minPeriod, period > 0 ? period : defPeriod);
+			}
+		}
+		return minPeriod == Long.MAX_VALUE ? defPeriod : minPeriod;
+	}
+
 	/**
 	 * Install MBean add/delete listener
 	 * 
@@ -147,17 +517,28 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 	 * @return {@code true} if included, {@code false} otherwise
 	 */
 	public boolean isFilterIncluded(ObjectName oName) {
+		return getIncludeFilterIndex(oName) >= 0;
+	}
+
+	/**
+	 * Determine index of first include filter matching given object name.
+	 *
+	 * @param oName
+	 *            object name
+	 * @return index of matching include filter, or {@code -1} if object name is not included or is excluded
+	 */
+	private int getIncludeFilterIndex(ObjectName oName) {
 		for (ObjectName eFilter : eFilters) {
 			if (eFilter.apply(oName)) {
-				return false;
+				return -1;
 			}
 		}
-		for (ObjectName incFilter : iFilters) {
-			if (incFilter.apply(oName)) {
-				return true;
+		for (int i = 0; i < iFilters.size(); i++) {
+			if (iFilters.get(i).apply(oName)) {
+				return i;
 			}
 		}
-		return false;
+		return -1;
 	}
 
 	/**
@@ -165,21 +546,28 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 	 */
 	private void loadMBeans() {
 		try {
-			tokenizeFilters(mbeanIncFilter, iFilters);
+			iFilters.clear();
+			iFilterPeriods.clear();
+			eFilters.clear();
+			tokenizeFilters(mbeanIncFilter, iFilters, iFilterPeriods);
 			if (!Utils.isEmpty(mbeanExcFilter)) {
-				tokenizeFilters(mbeanExcFilter, eFilters);
+				tokenizeFilters(mbeanExcFilter, eFilters, null);
 			}
+			tickPeriod = getMinFilterPeriod(mbeanIncFilter, defaultPeriod);
 			listenForChanges();
 
 			// run inclusion
-			for (ObjectName nameFilter : iFilters) {
-				Set<ObjectName> objSet = mbeanServer.queryNames(nameFilter, null);
+			for (int i = 0; i < iFilters.size(); i++) {
+				Set<ObjectName> objSet = mbeanServer.queryNames(iFilters.get(i), null);
 				if (!eFilters.isEmpty()) {
 					excludeFromSet(objSet, eFilters);
 				}
 				for (ObjectName oName : objSet) {
-					mbeans.put(oName, mbeanServer.getMBeanInfo(oName));
-					runRegister(oName);
+					if (!mbeans.containsKey(oName)) { // first matching filter group defines MBean period
+						mbeans.put(oName,
+								new MBeanSamplePlan(oName, mbeanServer.getMBeanInfo(oName), iFilterPeriods.get(i)));
+						runRegister(oName);
+					}
 				}
 			}
 		} catch (Exception ex) {
@@ -210,46 +598,428 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 
 	/**
 	 * Sample MBeans based on a configured MBean filter list and store within given activity as snapshots.
+	 * <p>
+	 * If handler is configured to use more than one sampling thread, MBeans set is split into disjoint partitions
+	 * sampled concurrently. Every sampling thread collects snapshots and counters of own partition, and those are
+	 * merged into activity and handler counters when all partitions are sampled.
 	 * 
 	 * @param activity
 	 *            instance where sampled MBean attributes are stored
+	 * @param deadline
+	 *            cycle deadline ({@link System#nanoTime()} based) after which not yet sampled MBeans are deferred to
+	 *            next cycle
 	 * @return number of metrics loaded from all MBeans
 	 */
-	private int sampleMBeans(Activity activity) {
-		int pCount = 0;
-		for (Entry<ObjectName, MBeanInfo> entry : mbeans.entrySet()) {
-			ObjectName name = entry.getKey();
-			MBeanInfo info = entry.getValue();
+	private int sampleMBeans(Activity activity, long deadline) {
+		List<MBeanSamplePlan> mbeanList = getDueMBeans(System.currentTimeMillis());
+		lastMBeanCount = mbeanList.size();
+		lastDeferredCount = 0;
+		int partitions = Math.min(samplingThreads, mbeanList.size());
+		if (partitions <= 1) {
+			SampleWorker worker = new SampleWorker(activity, mbeanList, deadline);
+			worker.call();
+			return merge(activity, worker);
+		}
 
-			PropertySnapshot snapshot = new PropertySnapshot(name.getDomain(), name.getCanonicalName());
-			for (MBeanAttributeInfo attr : info.getAttributes()) {
-				AttributeSample sample = AttributeSample.newAttributeSample(activity, snapshot, mbeanServer, name,
-						attr);
+		List<SampleWorker> workers = new ArrayList<SampleWorker>(partitions);
+		int pSize = mbeanList.size() / partitions;
+		int rem = mbeanList.size() % partitions;
+		for (int i = 0, from = 0; i < partitions; i++) {
+			int to = from + pSize + (i < rem ? 1 : 0);
+			workers.add(new SampleWorker(activity, mbeanList.subList(from, to), deadline));
+			from = to;
+		}
+
+		int pCount = 0;
+		try {
+			List<Future<SampleWorker>> results = getExecutor().invokeAll(workers);
+			for (Future<SampleWorker> result : results) {
 				try {
-					if (doPre(sample)) {
-						sample(sample); // obtain a sample
-						doPost(sample);
-						if (sample.isError() && !sample.isSilence()) {
-							doError(sample, OpLevel.WARNING);
-						}
-					}
-				} catch (Throwable ex) {
-					doError(sample, ex, OpLevel.ERROR);
-				} finally {
-					if (sample.excludeNext()) {
-						excCount++;
-					}
-					evalAttrConditions(sample);
+					pCount += merge(activity, result.get());
+				} catch (ExecutionException exc) {
+					doError(exc.getCause());
+				}
+			}
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+			doError(exc);
+		}
+		return pCount;
+	}
+
+	/**
+	 * Collects MBeans due to be sampled: MBeans deferred by previous cycle go first, followed by ones of filter groups
+	 * having sampling period elapsed since last sampling. Sampling time of collected MBeans is updated to provided
+	 * time.
+	 *
+	 * @param now
+	 *            current time in milliseconds
+	 * @return list of MBeans sampling plans due to be sampled
+	 */
+	private List<MBeanSamplePlan> getDueMBeans(long now) {
+		List<MBeanSamplePlan> mbeanList = new ArrayList<MBeanSamplePlan>(mbeans.size());
+		Set<MBeanSamplePlan> deferredSet = Collections.emptySet();
+		if (!deferred.isEmpty()) {
+			deferredSet = new HashSet<MBeanSamplePlan>(deferred);
+			for (MBeanSamplePlan plan : deferred) {
+				if (mbeans.get(plan.name) == plan) { // skip unregistered MBeans
+					plan.lastSampleTime = now;
+					mbeanList.add(plan);
 				}
 			}
+			deferred.clear();
+		}
+		long tolerance = getTickPeriod() / 2;
+		for (MBeanSamplePlan plan : mbeans.values()) {
+			if (!deferredSet.contains(plan) && plan.isDue(now, defaultPeriod, tolerance)) {
+				plan.lastSampleTime = now;
+				mbeanList.add(plan);
+			}
+		}
+		return mbeanList;
+	}
+
+	/**
+	 * Checks whether any of MBeans is due to be sampled.
+	 *
+	 * @param now
+	 *            current time in milliseconds
+	 * @return {@code true} if at least one MBean is due to be sampled, {@code false} - otherwise
+	 */
+	private boolean hasDueMBeans(long now) {
+		if (!deferred.isEmpty()) {
+			return true;
+		}
+		long tolerance = getTickPeriod() / 2;
+		for (MBeanSamplePlan plan : mbeans.values()) {
+			if (plan.isDue(now, defaultPeriod, tolerance)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sample provided set of MBeans and store sampled attributes as snapshots and sampling counters into worker
+	 * state. MBean sampling plan gets (re)compiled before sampling, if it is not compiled yet or got invalidated.
+	 *
+	 * @param worker
+	 *            sampling worker state
+	 */
+	private void sampleMBeans(SampleWorker worker) {
+		for (int i = 0; i < worker.mbeans.size(); i++) {
+			if (System.nanoTime() - worker.deadline > 0) {
+				worker.deferred = worker.mbeans.subList(i, worker.mbeans.size());
+				break;
+			}
+			MBeanSamplePlan plan = worker.mbeans.get(i);
+			ObjectName name = plan.name;
+
+			PropertySnapshot snapshot = new PropertySnapshot(name.getDomain(), name.getCanonicalName());
+			if (!plan.isValid()) {
+				compilePlan(worker, snapshot, plan);
+			}
+			worker.excCount += plan.excludedCount;
+			plan.cycles++;
+			if (bulkSampling) {
+				sampleAttributesBulk(worker, snapshot, plan);
+			} else {
+				sampleAttributes(worker, snapshot, plan);
+			}
+			if (slowAttrThreshold > 0) {
+				plan.updateTiers(TimeUnit.MILLISECONDS.toNanos(slowAttrThreshold));
+			}
+			if (deltaMode && snapshot.size() > 0) {
+				dropUnchanged(worker, snapshot, plan);
+			}
 			if (snapshot.size() > 0) {
-				doComplete(activity, name, info, snapshot);
+				doComplete(worker.activity, name, plan.info, snapshot);
+				if (sortedSnapshots) {
+					sortProperties(snapshot, plan);
+				}
 
-				pCount += snapshot.size();
-				activity.addSnapshot(snapshot);
+				worker.metricCount += snapshot.size();
+				worker.snapshots.add(snapshot);
 			}
 		}
-		return pCount;
+	}
+
+	/**
+	 * Removes MBean snapshot properties having values unchanged since last emission. On MBean full refresh cycle all
+	 * properties are retained, but last emitted values are updated. Full refresh is decided per MBean by its own
+	 * sampling cycles count, so MBeans of filter groups having different sampling periods, or deferred MBeans, get
+	 * refreshed every {@code deltaFullRefreshCycles} own samplings.
+	 *
+	 * @param worker
+	 *            sampling worker state
+	 * @param snapshot
+	 *            MBean attribute values snapshot
+	 * @param plan
+	 *            MBean sampling plan keeping last emitted values
+	 */
+	private void dropUnchanged(SampleWorker worker, PropertySnapshot snapshot, MBeanSamplePlan plan) {
+		boolean fullRefresh = deltaFullRefreshCycles > 0 && (plan.cycles - 1) % deltaFullRefreshCycles == 0;
+		List<String> unchanged = null;
+		for (Property p : snapshot.getSnapshot()) {
+			if (p.isTransient()) {
+				continue;
+			}
+			if (!plan.updateLastValue(p.getKey(), p.getValue()) && !fullRefresh) {
+				if (unchanged == null) {
+					unchanged = new ArrayList<String>();
+				}
+				unchanged.add(p.getKey());
+			}
+		}
+		if (unchanged != null) {
+			for (String key : unchanged) {
+				snapshot.remove(key);
+			}
+			worker.deltaDropCount += unchanged.size();
+		}
+	}
+
+	/**
+	 * Reorders MBean snapshot properties by property key, using properties order cached in MBean sampling plan.
+	 *
+	 * @param snapshot
+	 *            MBean attribute values snapshot
+	 * @param plan
+	 *            MBean sampling plan keeping properties order
+	 */
+	private static void sortProperties(PropertySnapshot snapshot, MBeanSamplePlan plan) {
+		Collection<Property> props = snapshot.getSnapshot();
+		Property[] pArray = props.toArray(new Property[props.size()]);
+		if (plan.orderProperties(pArray)) {
+			for (Property p : pArray) {
+				snapshot.remove(p.getKey());
+			}
+			for (Property p : pArray) {
+				snapshot.add(p);
+			}
+		}
+	}
+
+	/**
+	 * Merges sampling worker collected snapshots into activity and worker counters into handler counters.
+	 *
+	 * @param activity
+	 *            instance where sampled MBean attributes are stored
+	 * @param worker
+	 *            sampling worker state
+	 * @return number of metrics sampled by worker
+	 */
+	private int merge(Activity activity, SampleWorker worker) {
+		for (PropertySnapshot snapshot : worker.snapshots) {
+			activity.addSnapshot(snapshot);
+		}
+		excCount += worker.excCount;
+		errorCount += worker.errorCount;
+		totalActionCount += cycleActionCount.getAndSet(0);
+		deltaDropCount += worker.deltaDropCount;
+		if (worker.deferred != null) {
+			deferred.addAll(worker.deferred);
+			lastDeferredCount += worker.deferred.size();
+			totalDeferredCount += worker.deferred.size();
+		}
+		if (worker.lastError != null) {
+			lastError = worker.lastError;
+		}
+		return worker.metricCount;
+	}
+
+	private ExecutorService getExecutor() {
+		if (samplingExecutor == null) {
+			samplingExecutor = Executors.newFixedThreadPool(samplingThreads, new SamplingThreadFactory());
+		}
+		return samplingExecutor;
+	}
+
+	private void shutdownExecutor() {
+		if (samplingExecutor != null) {
+			samplingExecutor.shutdown();
+			samplingExecutor = null;
+		}
+	}
+
+	/**
+	 * Compiles MBean sampling plan: runs sample listeners pre-sampling checks for all MBean attributes and collects
+	 * ones not excluded from sampling.
+	 *
+	 * @param worker
+	 *            sampling worker state
+	 * @param snapshot
+	 *            snapshot to put MBean attribute values
+	 * @param plan
+	 *            MBean sampling plan to compile
+	 */
+	private void compilePlan(SampleWorker worker, PropertySnapshot snapshot, MBeanSamplePlan plan) {
+		MBeanAttributeInfo[] attrs = plan.info.getAttributes();
+		List<MBeanAttributeInfo> incAttrs = new ArrayList<MBeanAttributeInfo>(attrs.length);
+		List<Boolean> silenceAttrs = new ArrayList<Boolean>(attrs.length);
+		int excCount = 0;
+		for (MBeanAttributeInfo attr : attrs) {
+			AttributeSample sample = AttributeSample.newAttributeSample(worker.activity, snapshot, mbeanServer,
+					plan.name, attr);
+			boolean included = false;
+			try {
+				included = doPre(sample);
+			} catch (Throwable ex) {
+				doError(worker, sample, ex, OpLevel.ERROR);
+			}
+			if (included) {
+				incAttrs.add(attr);
+				silenceAttrs.add(sample.isSilence());
+			} else {
+				excCount++;
+			}
+		}
+		plan.compile(incAttrs, silenceAttrs, excCount);
+	}
+
+	/**
+	 * Samples MBean attributes one by one, making separate MBean server call for every attribute.
+	 *
+	 * @param worker
+	 *            sampling worker state
+	 * @param snapshot
+	 *            snapshot to put MBean attribute values
+	 * @param plan
+	 *            MBean sampling plan
+	 */
+	private void sampleAttributes(SampleWorker worker, PropertySnapshot snapshot, MBeanSamplePlan plan) {
+		MBeanAttributeInfo[] attrs = plan.attrs;
+		boolean[] silence = plan.silence;
+		for (int i = 0; i < attrs.length; i++) {
+			if (!plan.isSampled(i, slowAttrTierFactor)) {
+				continue;
+			}
+			AttributeSample sample = AttributeSample.newAttributeSample(worker.activity, snapshot, mbeanServer,
+					plan.name, attrs[i]);
+			sample.silence(silence[i]);
+			try {
+				sample(plan, i, sample); // obtain a sample
+				postSample(worker, sample);
+			} catch (Throwable ex) {
+				doError(worker, sample, ex, OpLevel.ERROR);
+			} finally {
+				completeSample(worker, plan, silence[i], sample);
+			}
+		}
+	}
+
+	/**
+	 * Samples MBean attributes making single {@link MBeanServerConnection#getAttributes(ObjectName, String[])} call
+	 * for all sampling plan attributes. Attributes missing in bulk call returned list (or all of them if bulk call
+	 * fails) are sampled separately, so attribute sampling errors can be resolved.
+	 * <p>
+	 * Bulk call time can't be attributed to particular attribute, so it is shared evenly between bulk read attributes
+	 * when recording attribute sampling time into MBean sampling plan.
+	 *
+	 * @param worker
+	 *            sampling worker state
+	 * @param snapshot
+	 *            snapshot to put MBean attribute values
+	 * @param plan
+	 *            MBean sampling plan
+	 */
+	private void sampleAttributesBulk(SampleWorker worker, PropertySnapshot snapshot, MBeanSamplePlan plan) {
+		MBeanAttributeInfo[] attrs = plan.attrs;
+		if (attrs.length == 0) {
+			return;
+		}
+
+		boolean[] silence = plan.silence;
+		boolean slowTierCycle = plan.isSlowTierCycle(slowAttrTierFactor);
+		long started = System.nanoTime();
+		Map<String, Attribute> values = getAttributeValues(plan.name,
+				slowTierCycle ? plan.attrNames : plan.fastAttrNames);
+		long attrCost = values.isEmpty() ? 0 : (System.nanoTime() - started) / values.size();
+		for (int i = 0; i < attrs.length; i++) {
+			if (!slowTierCycle && plan.demoted[i]) {
+				continue;
+			}
+			AttributeSample sample = AttributeSample.newAttributeSample(worker.activity, snapshot, mbeanServer,
+					plan.name, attrs[i]);
+			sample.silence(silence[i]);
+			try {
+				Attribute attr = values.get(attrs[i].getName());
+				if (attr == null) {
+					sample(plan, i, sample); // obtain a sample
+				} else {
+					plan.recordCost(i, attrCost);
+					sample.sample(attr);
+				}
+				postSample(worker, sample);
+			} catch (Throwable ex) {
+				doError(worker, sample, ex, OpLevel.ERROR);
+			} finally {
+				completeSample(worker, plan, silence[i], sample);
+			}
+		}
+	}
+
+	/**
+	 * Reads values of all provided attributes using single
+	 * {@link MBeanServerConnection#getAttributes(ObjectName, String[])} call.
+	 *
+	 * @param name
+	 *            MBean object name
+	 * @param attrNames
+	 *            names of attributes to read values for
+	 * @return map of read attributes keyed by attribute name, or empty map if bulk read has failed
+	 */
+	private Map<String, Attribute> getAttributeValues(ObjectName name, String[] attrNames) {
+		Map<String, Attribute> values = new HashMap<String, Attribute>(attrNames.length);
+		try {
+			AttributeList attrList = getAttributes(name, attrNames);
+			if (attrList != null) {
+				for (Object attrObj : attrList) {
+					Attribute attr = (Attribute) attrObj;
+					values.put(attr.getName(), attr);
+				}
+			}
+		} catch (Throwable ex) {
+			// all attributes gets sampled one by one
+		}
+		return values;
+	}
+
+	/**
+	 * Run post sampling listeners and error handling for sampled attribute.
+	 *
+	 * @param worker
+	 *            sampling worker state
+	 * @param sample
+	 *            MBean sample instance
+	 * @throws UnsupportedAttributeException
+	 *             if attribute value can not be resolved
+	 */
+	private void postSample(SampleWorker worker, AttributeSample sample) throws UnsupportedAttributeException {
+		doPost(sample);
+		if (sample.isError() && !sample.isSilence()) {
+			doError(worker, sample, OpLevel.WARNING);
+		}
+	}
+
+	/**
+	 * Completes attribute sampling: evaluates registered conditions and invalidates MBean sampling plan if sampled
+	 * attribute got excluded or silenced.
+	 *
+	 * @param worker
+	 *            sampling worker state
+	 * @param plan
+	 *            MBean sampling plan
+	 * @param silence
+	 *            plan defined attribute silence flag
+	 * @param sample
+	 *            MBean sample instance
+	 */
+	private void completeSample(SampleWorker worker, MBeanSamplePlan plan, boolean silence, AttributeSample sample) {
+		if (sample.excludeNext() || sample.isSilence() != silence) {
+			plan.invalidate();
+		}
+		evalAttrConditions(sample);
 	}
 
 	/**
@@ -268,18 +1038,67 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 	}
 
 	/**
-	 * Run and evaluate all registered conditions and invoke associated {@link AttributeAction} instances.
+	 * Sample and retrieve the value associated with the MBean attribute, recording attribute sampling time into MBean
+	 * sampling plan.
+	 *
+	 * @param plan
+	 *            MBean sampling plan
+	 * @param idx
+	 *            plan attribute index
+	 * @param sample
+	 *            MBean sample instance
+	 * @return the value associated with the current attribute
+	 * @throws Exception
+	 *             if exception occurs while sampling attribute value
+	 */
+	private Object sample(MBeanSamplePlan plan, int idx, AttributeSample sample) throws Exception {
+		long started = System.nanoTime();
+		try {
+			return sample(sample);
+		} finally {
+			plan.recordCost(idx, System.nanoTime() - started);
+		}
+	}
+
+	/**
+	 * Retrieve values of the MBean attributes in bulk.
+	 *
+	 * @param name
+	 *            MBean object name
+	 * @param attrNames
+	 *            names of attributes to retrieve
+	 * @return list of retrieved attributes
+	 * @throws Exception
+	 *             if exception occurs while retrieving attribute values
+	 *
+	 * @see MBeanServerConnection#getAttributes(ObjectName, String[])
+	 */
+	protected AttributeList getAttributes(ObjectName name, String[] attrNames) throws Exception {
+		return mbeanServer.getAttributes(name, attrNames);
+	}
+
+	/**
+	 * Run and evaluate registered conditions applicable to sampled attribute and invoke associated
+	 * {@link AttributeAction} instances.
 	 * 
 	 * @param sample
 	 *            MBean sample instance
 	 * @see AttributeSample
+	 * @see ConditionRegistry#evaluate(SampleContext, AttributeSample)
 	 */
 	protected void evalAttrConditions(AttributeSample sample) {
-		for (Map.Entry<AttributeCondition, AttributeAction> entry : conditions.entrySet()) {
-			if (entry.getKey().evaluate(sample)) {
-				totalActionCount++;
-				entry.getValue().action(context, entry.getKey(), sample);
-			}
+		countActions(conditions.evaluate(context, sample));
+	}
+
+	/**
+	 * Adds invoked actions count to current sampling cycle actions count. Sampling threads may add counts concurrently.
+	 *
+	 * @param count
+	 *            number of invoked actions
+	 */
+	private void countActions(int count) {
+		if (count > 0) {
+			cycleActionCount.addAndGet(count);
 		}
 	}
 
@@ -291,18 +1110,37 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 	 * @return snapshot instance containing metrics at the end of each sample
 	 */
 	private PropertySnapshot finish(Activity activity) {
+		long skipped = pendingSkipCount.getAndSet(0);
+		skippedCycleCount += skipped;
+		noopCount += skipped;
+
 		PropertySnapshot snapshot = new PropertySnapshot(activity.getName(), "SampleContext");
 		snapshot.add(STAT_NOOP_COUNT, noopCount);
 		snapshot.add(STAT_SAMPLE_COUNT, sampleCount);
 		snapshot.add(STAT_TOTAL_ERROR_COUNT, errorCount);
 		snapshot.add(STAT_TOTAL_EXCLUDE_COUNT, excCount);
 		snapshot.add(STAT_MBEAN_COUNT, mbeans.size());
+		snapshot.add(STAT_LAST_MBEAN_COUNT, lastMBeanCount);
+		snapshot.add(STAT_CYCLE_TIME_BUDGET_MSEC, getEffectiveTimeBudget());
+		snapshot.add(STAT_TOTAL_OVERRUN_COUNT, overrunCount);
+		snapshot.add(STAT_TOTAL_SKIPPED_CYCLE_COUNT, skippedCycleCount);
+		snapshot.add(STAT_LAST_DEFERRED_MBEAN_COUNT, lastDeferredCount);
+		snapshot.add(STAT_TOTAL_DEFERRED_MBEAN_COUNT, totalDeferredCount);
+		snapshot.add(STAT_DEADLINE_HIT_RATE, sampleCount == 0 ? 0.0 : (double) deadlineHitCount / sampleCount);
+		snapshot.add(STAT_SLOW_ATTR_THRESHOLD_USEC, TimeUnit.MILLISECONDS.toMicros(Math.max(slowAttrThreshold, 0)));
+		addSlowAttrStats(snapshot);
 		snapshot.add(STAT_CONDITION_COUNT, conditions.size());
-		snapshot.add(STAT_LISTENER_COUNT, listeners.size());
+		snapshot.add(STAT_LISTENER_COUNT, listeners.length);
 		snapshot.add(STAT_TOTAL_ACTION_COUNT, totalActionCount);
 		snapshot.add(STAT_TOTAL_METRIC_COUNT, totalMetricCount);
 		snapshot.add(STAT_LAST_METRIC_COUNT, lastMetricCount);
 		snapshot.add(STAT_SAMPLE_TIME_USEC, lastSampleTimeUsec);
+		snapshot.add(STAT_BULK_SAMPLING_MODE, bulkSampling);
+		snapshot.add(STAT_SAMPLING_THREADS, samplingThreads);
+		snapshot.add(STAT_DELTA_MODE, deltaMode);
+		snapshot.add(STAT_DELTA_FULL_REFRESH_CYCLES, deltaFullRefreshCycles);
+		snapshot.add(STAT_TOTAL_DELTA_DROP_COUNT, deltaDropCount);
+		snapshot.add(STAT_SORTED_SNAPSHOTS_MODE, sortedSnapshots);
 
 		// get custom statistics
 		Map<String, Object> stats = new HashMap<String, Object>();
@@ -313,6 +1151,43 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 		return snapshot;
 	}
 
+	/**
+	 * Adds count of attributes demoted to slow sampling tier and top slowest to sample attributes (having highest
+	 * smoothed sampling time) into sampling statistics snapshot.
+	 *
+	 * @param snapshot
+	 *            sampling statistics snapshot
+	 */
+	private void addSlowAttrStats(PropertySnapshot snapshot) {
+		long demotedCount = 0;
+		PriorityQueue<AttrCost> topCosts = new PriorityQueue<AttrCost>(Math.max(slowAttrTopCount, 1) + 1);
+		for (MBeanSamplePlan plan : mbeans.values()) {
+			demotedCount += plan.demotedCount;
+			if (slowAttrTopCount <= 0) {
+				continue;
+			}
+			long[] costs = plan.avgCostNanos;
+			for (int i = 0; i < costs.length; i++) {
+				if (plan.costSamples[i] > 0
+						&& (topCosts.size() < slowAttrTopCount || costs[i] > topCosts.peek().costNanos)) {
+					topCosts.add(new AttrCost(plan, i, costs[i]));
+					if (topCosts.size() > slowAttrTopCount) {
+						topCosts.poll();
+					}
+				}
+			}
+		}
+		snapshot.add(STAT_DEMOTED_ATTR_COUNT, demotedCount);
+
+		AttrCost[] slowest = topCosts.toArray(new AttrCost[topCosts.size()]);
+		Arrays.sort(slowest, Collections.reverseOrder());
+		for (int i = 0; i < slowest.length; i++) {
+			String prefix = STAT_SLOW_ATTR_PREFIX + (i + 1) + ".";
+			snapshot.add(prefix + "name", slowest[i].plan.attrNames[slowest[i].idx] + "@" + slowest[i].plan.name);
+			snapshot.add(prefix + "usec", TimeUnit.NANOSECONDS.toMicros(slowest[i].costNanos));
+		}
+	}
+
 	@Override
 	public void started(Activity activity) {
 		lock.lock();
@@ -321,7 +1196,10 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 			runPre(activity);
 			if ((!activity.isNoop()) && (mbeans.isEmpty())) {
 				loadMBeans();
-			} else if (activity.isNoop()) {
+			} else if (!activity.isNoop() && !hasDueMBeans(System.currentTimeMillis())) {
+				activity.setType(OpType.NOOP); // no filter group is due this cycle
+			}
+			if (activity.isNoop()) {
 				noopCount++;
 			}
 		} finally {
@@ -329,16 +1207,39 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Sampling cycle fired while previous cycle is still running, or fired right after overrun cycle (less than half
+	 * of sampling period since previous cycle start), is skipped instead of being queued.
+	 */
 	@Override
 	public void stopped(Activity activity) {
 		if (!activity.isNoop()) {
-			lock.lock();
+			if (!lock.tryLock()) {
+				skipCycle(activity);
+				return;
+			}
 			try {
 				long started = System.nanoTime();
+				if (isCoalesced(started)) {
+					skipCycle(activity);
+					return;
+				}
+				lastCycleStartNanos = started;
+				long budget = getEffectiveTimeBudget();
+				long deadline = started + (budget > 0 ? TimeUnit.MILLISECONDS.toNanos(budget) : Long.MAX_VALUE / 2);
 				sampleCount++;
-				lastMetricCount = sampleMBeans(activity);
+				lastMetricCount = sampleMBeans(activity, deadline);
 				totalMetricCount += lastMetricCount;
 				lastSampleTimeUsec = (System.nanoTime() - started) / 1000;
+				if (lastDeferredCount > 0) {
+					deadlineHitCount++;
+				}
+				long tick = getTickPeriod();
+				if (tick > 0 && lastSampleTimeUsec > TimeUnit.MILLISECONDS.toMicros(tick)) {
+					overrunCount++;
+				}
 
 				// run post listeners
 				runPost(activity);
@@ -355,6 +1256,32 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 		}
 	}
 
+	/**
+	 * Checks whether sampling cycle fired too early after previous cycle start, what happens when scheduler catches
+	 * up missed runs after overrun cycle.
+	 *
+	 * @param now
+	 *            current {@link System#nanoTime()} value
+	 * @return {@code true} if cycle shall be coalesced with previous one, {@code false} - otherwise
+	 */
+	private boolean isCoalesced(long now) {
+		long tick = getTickPeriod();
+		return tick > 0 && lastCycleStartNanos != 0
+				&& now - lastCycleStartNanos < TimeUnit.MILLISECONDS.toNanos(tick) / 2;
+	}
+
+	/**
+	 * Marks sampling cycle activity as NOOP, so it is not sampled nor logged. Cycle may be skipped without holding
+	 * handler lock, so skipped cycles are counted atomically and folded into handler counters by next finished cycle.
+	 *
+	 * @param activity
+	 *            sampling activity instance
+	 */
+	private void skipCycle(Activity activity) {
+		activity.setType(OpType.NOOP);
+		pendingSkipCount.incrementAndGet();
+	}
+
 	/**
 	 * Reset all counters maintained by sampling handler
 	 * 
@@ -371,6 +1298,13 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 			noopCount = 0;
 			excCount = 0;
 			errorCount = 0;
+			deltaDropCount = 0;
+			overrunCount = 0;
+			skippedCycleCount = 0;
+			pendingSkipCount.set(0);
+			deadlineHitCount = 0;
+			lastDeferredCount = 0;
+			totalDeferredCount = 0;
 			lastError = null;
 			return context;
 		} finally {
@@ -386,10 +1320,8 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 	 *            MBean object name
 	 */
 	private void runRegister(ObjectName name) {
-		synchronized (this.listeners) {
-			for (SampleListener lst : listeners) {
-				lst.register(context, name);
-			}
+		for (SampleListener lst : listeners) {
+			lst.register(context, name);
 		}
 	}
 
@@ -401,10 +1333,8 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 	 *            MBean object name
 	 */
 	private void runUnRegister(ObjectName name) {
-		synchronized (this.listeners) {
-			for (SampleListener lst : listeners) {
-				lst.unregister(context, name);
-			}
+		for (SampleListener lst : listeners) {
+			lst.unregister(context, name);
 		}
 	}
 
@@ -416,10 +1346,8 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 	 *            sampling activity instance
 	 */
 	private void runPost(Activity activity) {
-		synchronized (this.listeners) {
-			for (SampleListener lst : listeners) {
-				lst.post(context, activity);
-			}
+		for (SampleListener lst : listeners) {
+			lst.post(context, activity);
 		}
 	}
 
@@ -431,10 +1359,8 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 	 *            sampling activity instance
 	 */
 	private void runPre(Activity activity) {
-		synchronized (this.listeners) {
-			for (SampleListener lst : listeners) {
-				lst.pre(context, activity);
-			}
+		for (SampleListener lst : listeners) {
+			lst.pre(context, activity);
 		}
 	}
 
@@ -447,10 +1373,8 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 	 *            current attribute sample instance
 	 */
 	private boolean doPre(AttributeSample sample) {
-		synchronized (this.listeners) {
-			for (SampleListener lst : listeners) {
-				lst.pre(context, sample);
-			}
+		for (SampleListener lst : listeners) {
+			lst.pre(context, sample);
 		}
 		return !sample.excludeNext();
 	}
@@ -466,10 +1390,8 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 	 *             if attribute value can not be resolved
 	 */
 	private void doPost(AttributeSample sample) throws UnsupportedAttributeException {
-		synchronized (this.listeners) {
-			for (SampleListener lst : listeners) {
-				lst.post(context, sample);
-			}
+		for (SampleListener lst : listeners) {
+			lst.post(context, sample);
 		}
 	}
 
@@ -488,10 +1410,8 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 	 *            MBean attribute values snapshot
 	 */
 	private void doComplete(Activity activity, ObjectName name, MBeanInfo info, Snapshot snapshot) {
-		synchronized (this.listeners) {
-			for (SampleListener lst : listeners) {
-				lst.complete(context, activity, name, info, snapshot);
-			}
+		for (SampleListener lst : listeners) {
+			lst.complete(context, activity, name, info, snapshot);
 		}
 	}
 
@@ -499,6 +1419,8 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 	 * Run {@link com.jkoolcloud.tnt4j.stream.jmx.core.SampleListener#error(SampleContext, AttributeSample, OpLevel)}
 	 * for all registered listeners.
 	 * 
+	 * @param worker
+	 *            sampling worker state
 	 * @param sample
 	 *            current attribute sample instance
 	 * @param ex
@@ -506,29 +1428,29 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 	 * @param level
 	 *            error severity level
 	 *
-	 * @see #doError(AttributeSample, OpLevel)
+	 * @see #doError(SampleWorker, AttributeSample, OpLevel)
 	 */
-	private void doError(AttributeSample sample, Throwable ex, OpLevel level) {
+	private void doError(SampleWorker worker, AttributeSample sample, Throwable ex, OpLevel level) {
 		sample.setError(ex);
-		doError(sample, level);
+		doError(worker, sample, level);
 	}
 
 	/**
 	 * Run {@link com.jkoolcloud.tnt4j.stream.jmx.core.SampleListener#error(SampleContext, AttributeSample, OpLevel)}
 	 * for all registered listeners.
 	 *
+	 * @param worker
+	 *            sampling worker state
 	 * @param sample
 	 *            current attribute sample instance
 	 * @param level
 	 *            error severity level
 	 */
-	private void doError(AttributeSample sample, OpLevel level) {
-		errorCount++;
-		lastError = sample.getError();
-		synchronized (this.listeners) {
-			for (SampleListener lst : listeners) {
-				lst.error(context, sample, level);
-			}
+	private void doError(SampleWorker worker, AttributeSample sample, OpLevel level) {
+		worker.errorCount++;
+		worker.lastError = sample.getError();
+		for (SampleListener lst : listeners) {
+			lst.error(context, sample, level);
 		}
 	}
 
@@ -542,10 +1464,8 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 	private void doError(Throwable ex) {
 		errorCount++;
 		lastError = ex;
-		synchronized (this.listeners) {
-			for (SampleListener lst : listeners) {
-				lst.error(context, ex);
-			}
+		for (SampleListener lst : listeners) {
+			lst.error(context, ex);
 		}
 	}
 
@@ -557,16 +1477,14 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 	 *            map of key/value statistics
 	 */
 	private void doStats(Map<String, Object> stats) {
-		synchronized (this.listeners) {
-			for (SampleListener lst : listeners) {
-				lst.getStats(context, stats);
-			}
+		for (SampleListener lst : listeners) {
+			lst.getStats(context, stats);
 		}
 	}
 
 	@Override
 	public SampleHandler register(AttributeCondition cond, AttributeAction action) {
-		conditions.put(cond, (action == null ? NoopAction.NOOP : action));
+		conditions.register(cond, (action == null ? NoopAction.NOOP : action));
 		return this;
 	}
 
@@ -576,18 +1494,48 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 		return this;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Listeners are stored in copy-on-write array, so listeners invocation during sampling requires no locking.
+	 */
 	@Override
 	public SampleHandler addListener(SampleListener listener) {
-		listeners.add(listener);
+		synchronized (listenersLock) {
+			SampleListener[] lArray = Arrays.copyOf(listeners, listeners.length + 1);
+			lArray[lArray.length - 1] = listener;
+			listeners = lArray;
+		}
+		invalidatePlans();
 		return this;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Listeners are stored in copy-on-write array, so listeners invocation during sampling requires no locking.
+	 */
 	@Override
 	public SampleHandler removeListener(SampleListener listener) {
-		listeners.remove(listener);
+		synchronized (listenersLock) {
+			List<SampleListener> lList = new ArrayList<SampleListener>(Arrays.asList(listeners));
+			if (lList.remove(listener)) {
+				listeners = lList.toArray(new SampleListener[lList.size()]);
+			}
+		}
+		invalidatePlans();
 		return this;
 	}
 
+	/**
+	 * Marks all MBeans sampling plans to be recompiled on next sampling.
+	 */
+	private void invalidatePlans() {
+		for (MBeanSamplePlan plan : mbeans.values()) {
+			plan.invalidate();
+		}
+	}
+
 	@Override
 	public SampleContext getContext() {
 		return context;
@@ -599,8 +1547,10 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 			MBeanServerNotification mbeanEvent = (MBeanServerNotification) notification;
 			if (mbeanEvent.getType().equalsIgnoreCase(MBeanServerNotification.REGISTRATION_NOTIFICATION)) {
 				try {
-					if (isFilterIncluded(mbeanEvent.getMBeanName())) {
-						mbeans.put(mbeanEvent.getMBeanName(), mbeanServer.getMBeanInfo(mbeanEvent.getMBeanName()));
+					int fIdx = getIncludeFilterIndex(mbeanEvent.getMBeanName());
+					if (fIdx >= 0) {
+						mbeans.put(mbeanEvent.getMBeanName(), new MBeanSamplePlan(mbeanEvent.getMBeanName(),
+								mbeanServer.getMBeanInfo(mbeanEvent.getMBeanName()), iFilterPeriods.get(fIdx)));
 						runRegister(mbeanEvent.getMBeanName());
 					}
 				} catch (Throwable ex) {
@@ -610,15 +1560,119 @@ public class SampleHandlerImpl implements SampleHandler, NotificationListener {
 				mbeans.remove(mbeanEvent.getMBeanName());
 				runUnRegister(mbeanEvent.getMBeanName());
 			}
+
+			for (NotificationListener mcl : mbeanChangeListeners) {
+				try {
+					mcl.handleNotification(notification, handback);
+				} catch (Throwable ex) {
+					doError(ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds listener to be notified on sampled MBean server MBeans registration/unregistration. Listener gets
+	 * {@link MBeanServerNotification} notifications passed by this handler.
+	 *
+	 * @param mcl
+	 *            MBeans registration/unregistration notifications listener
+	 */
+	public void addMBeanChangeListener(NotificationListener mcl) {
+		if (mcl != null && !mbeanChangeListeners.contains(mcl)) {
+			mbeanChangeListeners.add(mcl);
 		}
 	}
 
+	/**
+	 * Removes MBeans registration/unregistration notifications listener.
+	 *
+	 * @param mcl
+	 *            MBeans registration/unregistration notifications listener
+	 */
+	public void removeMBeanChangeListener(NotificationListener mcl) {
+		mbeanChangeListeners.remove(mcl);
+	}
+
 	@Override
 	public void cleanup() {
+		lock.lock();
+		try {
+			shutdownExecutor();
+		} finally {
+			lock.unlock();
+		}
+		iFilters.clear();
+		iFilterPeriods.clear();
 		eFilters.clear();
+		deferred.clear();
 		conditions.clear();
 		mbeans.clear();
-		listeners.clear();
+		mbeanChangeListeners.clear();
+		synchronized (listenersLock) {
+			listeners = new SampleListener[0];
+		}
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Sampling worker state: set of MBeans to sample, and snapshots and counters collected while sampling them.
+	 */
+	private class SampleWorker implements Callable<SampleWorker> {
+		final Activity activity;
+		final List<MBeanSamplePlan> mbeans;
+		final List<PropertySnapshot> snapshots;
+		final long deadline;
+		List<MBeanSamplePlan> deferred;
+
+		int metricCount = 0;
+		long excCount = 0, errorCount = 0, deltaDropCount = 0;
+		Throwable lastError;
+
+		SampleWorker(Activity activity, List<MBeanSamplePlan> mbeans, long deadline) {
+			this.activity = activity;
+			this.mbeans = mbeans;
+			this.deadline = deadline;
+			this.snapshots = new ArrayList<PropertySnapshot>(mbeans.size());
+		}
+
+		@Override
+		public SampleWorker call() {
+			sampleMBeans(this);
+			return this;
+		}
+	}
+
+	private static class SamplingThreadFactory implements ThreadFactory {
+		private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+		private final AtomicInteger threadCount = new AtomicInteger();
+		private final String namePrefix;
+
+		SamplingThreadFactory() {
+			namePrefix = "SampleHandlerImpl-" + POOL_COUNT.incrementAndGet() + "-worker-";
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, namePrefix + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	private static class AttrCost implements Comparable<AttrCost> {
+		final MBeanSamplePlan plan;
+		final int idx;
+		final long costNanos;
+
+		AttrCost(MBeanSamplePlan plan, int idx, long costNanos) {
+			this.plan = plan;
+			this.idx = idx;
+			this.costNanos = costNanos;
+		}
+
+		@Override
+		public int compareTo(AttrCost other) {
+			return costNanos < other.costNanos ? -1 : (costNanos == other.costNanos ? 0 : 1);
+		}
+	}
+}
@@ -18,6 +18,7 @@ package com.jkoolcloud.tnt4j.stream.jmx.scheduler;
 import java.util.concurrent.TimeUnit;
 
 import javax.management.MBeanServerConnection;
+import javax.management.NotificationListener;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -27,6 +28,9 @@ import com.jkoolcloud.tnt4j.config.DefaultConfigFactory;
 import com.jkoolcloud.tnt4j.config.TrackerConfig;
 import com.jkoolcloud.tnt4j.config.TrackerConfigStore;
 import com.jkoolcloud.tnt4j.core.ActivityListener;
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.sink.EventSink;
 import com.jkoolcloud.tnt4j.stream.jmx.conditions.AttributeAction;
 import com.jkoolcloud.tnt4j.stream.jmx.conditions.AttributeCondition;
 import com.jkoolcloud.tnt4j.stream.jmx.conditions.SampleHandler;
@@ -47,6 +51,7 @@ public class SchedulerImpl extends ActivityScheduler implements Scheduler {
 	protected TimeUnit timeUnit;
 	protected String incFilter;
 	protected String excFilter;
+	protected AdaptivePeriodPolicy adaptivePolicy;
 
 	/**
 	 * Create new instance of {@code SchedulerImpl} with a given name, MBean server, sampling period. Filter is set to
@@ -229,9 +234,66 @@ public class SchedulerImpl extends ActivityScheduler implements Scheduler {
 		return TimeUnit.MILLISECONDS.convert(period, timeUnit);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If include filter defines filter groups having own sampling periods (e.g. {@code java.lang:*@5000}), scheduler
+	 * runs sampling cycles using minimal period of all filter groups, and sample handler samples only groups due in
+	 * particular cycle.
+	 * <p>
+	 * If adaptive sampling period is enabled, sampling period gets adjusted by {@link AdaptivePeriodPolicy}.
+	 * <p>
+	 * If scheduler logger event sink or its event formatter implements {@link NotificationListener}, it gets notified on
+	 * sampled MBeans registration/unregistration.
+	 */
 	@Override
 	public void run() {
-		this.schedule(this.getName(), initDelay, period, timeUnit);
+		long periodMs = getPeriod();
+		long tickMs = periodMs;
+		if (listener instanceof SampleHandlerImpl) {
+			tickMs = SampleHandlerImpl.getMinFilterPeriod(incFilter, periodMs);
+			((SampleHandlerImpl) listener).setDefaultPeriod(periodMs);
+
+			EventSink sink = getLogger().getEventSink();
+			if (sink instanceof NotificationListener) {
+				((SampleHandlerImpl) listener).addMBeanChangeListener((NotificationListener) sink);
+			}
+			EventFormatter formatter = sink.getEventFormatter();
+			if (formatter instanceof NotificationListener) {
+				((SampleHandlerImpl) listener).addMBeanChangeListener((NotificationListener) formatter);
+			}
+		}
+		if (AdaptivePeriodPolicy.isEnabled()) {
+			adaptivePolicy = new AdaptivePeriodPolicy(tickMs);
+		}
+		if (adaptivePolicy != null || tickMs != periodMs) {
+			this.schedule(this.getName(), TimeUnit.MILLISECONDS.convert(initDelay, timeUnit), tickMs,
+					TimeUnit.MILLISECONDS);
+		} else {
+			this.schedule(this.getName(), initDelay, period, timeUnit);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If adaptive sampling period is enabled, returned task evaluates {@link AdaptivePeriodPolicy} after every
+	 * sampling cycle and reschedules sampling when policy resolves changed period. Changed period is also set to
+	 * sample handler as sampling tick period, used to resolve cycle time budget and cycles coalescing window.
+	 */
+	@Override
+	protected Runnable newActivityTask(TrackingLogger lg, String name, OpLevel level) {
+		Runnable task = super.newActivityTask(lg, name, level);
+		return adaptivePolicy == null ? task : new AdaptiveActivityTask(task);
+	}
+
+	/**
+	 * Returns adaptive sampling period policy.
+	 *
+	 * @return adaptive sampling period policy, or {@code null} if adaptive sampling period is not enabled
+	 */
+	public AdaptivePeriodPolicy getAdaptivePolicy() {
+		return adaptivePolicy;
 	}
 
 	@Override
@@ -241,4 +303,26 @@ public class SchedulerImpl extends ActivityScheduler implements Scheduler {
 		TrackingLogger.shutdown(getLogger());
 		listener.cleanup();
 	}
+
+	private class AdaptiveActivityTask implements Runnable {
+		private final Runnable task;
+
+		AdaptiveActivityTask(Runnable task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			long period = adaptivePolicy.getPeriod();
+			task.run();
+			long newPeriod = adaptivePolicy.evaluate(listener.getContext());
+			if (newPeriod != period) {
+				if (listener instanceof SampleHandlerImpl) {
+					((SampleHandlerImpl) listener).setTickPeriod(newPeriod);
+				}
+				cancel();
+				schedule(getName(), newPeriod, newPeriod, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
 }
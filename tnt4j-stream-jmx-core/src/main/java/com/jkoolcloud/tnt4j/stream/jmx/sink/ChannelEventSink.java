@@ -0,0 +1,398 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jkoolcloud.tnt4j.stream.jmx.sink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.List;
+
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.core.Snapshot;
+import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.sink.AbstractEventSink;
+import com.jkoolcloud.tnt4j.source.Source;
+import com.jkoolcloud.tnt4j.stream.jmx.format.BatchingFormatter;
+import com.jkoolcloud.tnt4j.stream.jmx.format.BinaryFormatter;
+import com.jkoolcloud.tnt4j.stream.jmx.format.StreamingFormatter;
+import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
+import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
+
+/**
+ * This class implements event sink writing formatted events to file or socket using NIO channel.
+ * <p>
+ * If sink bound event formatter implements {@link StreamingFormatter}, events are formatted into reused string
+ * builder, which is then encoded in UTF-8 directly into reused byte buffer and written to channel in buffer sized
+ * chunks - no intermediate {@link String} instances are made. For any other formatter, formatted string is encoded and
+ * written same way.
+ * <p>
+ * If formatter implements {@link BatchingFormatter}, activity output batches are flushed to channel one by one, so
+ * every channel write (when buffer size is not less than batch size) contains only whole records.
+ * <p>
+ * If formatter implements {@link BinaryFormatter}, formatted bytes are written to channel as is. Binary formatter
+ * output segment is reset every time sink gets opened. If formatted bytes fail to be written, channel is closed and
+ * binary formatter is reset, so receiver never gets records referring dictionary entries it has not received.
+ *
+ * @version $Revision: 1 $
+ *
+ * @see ChannelEventSinkFactory
+ */
+public class ChannelEventSink extends AbstractEventSink {
+	/**
+	 * Default size of channel write buffer in bytes.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	/**
+	 * Max capacity of formatting string builder to be retained between events.
+	 */
+	private static final int MAX_RETAINED_BUILDER_CAPACITY = 1024 * 1024;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final CharBuffer LF = CharBuffer.wrap("\n");
+
+	private final String fileName;
+	private final boolean append;
+	private final String host;
+	private final int port;
+
+	private WritableByteChannel channel;
+
+	private final Object writeLock = new Object();
+	private final ByteBuffer buffer;
+	private final CharsetEncoder encoder;
+	private StringBuilder builder = new StringBuilder(4096);
+	private BytesOutputStream bytes = new BytesOutputStream();
+
+	/**
+	 * Create new instance of {@code ChannelEventSink} writing events to file.
+	 *
+	 * @param name
+	 *            sink name
+	 * @param fileName
+	 *            file name
+	 * @param append
+	 *            flag indicating whether to append to existing file
+	 * @param bufferSize
+	 *            channel write buffer size in bytes
+	 * @param frm
+	 *            event formatter
+	 */
+	public ChannelEventSink(String name, String fileName, boolean append, int bufferSize, EventFormatter frm) {
+		this(name, fileName, append, null, 0, bufferSize, frm);
+	}
+
+	/**
+	 * Create new instance of {@code ChannelEventSink} writing events to socket.
+	 *
+	 * @param name
+	 *            sink name
+	 * @param host
+	 *            host name to connect
+	 * @param port
+	 *            port number to connect
+	 * @param bufferSize
+	 *            channel write buffer size in bytes
+	 * @param frm
+	 *            event formatter
+	 */
+	public ChannelEventSink(String name, String host, int port, int bufferSize, EventFormatter frm) {
+		this(name, null, false, host, port, bufferSize, frm);
+	}
+
+	private ChannelEventSink(String name, String fileName, boolean append, String host, int port, int bufferSize,
+			EventFormatter frm) {
+		super(name, frm);
+		this.fileName = fileName;
+		this.append = append;
+		this.host = host;
+		this.port = port;
+		this.buffer = ByteBuffer.allocateDirect(bufferSize > 0 ? bufferSize : DEFAULT_BUFFER_SIZE);
+		this.encoder = UTF8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	@Override
+	public Object getSinkHandle() {
+		return channel;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return channel != null && channel.isOpen();
+	}
+
+	@Override
+	public synchronized void open() throws IOException {
+		if (isOpen()) {
+			return;
+		}
+		if (fileName != null) {
+			channel = new FileOutputStream(fileName, append).getChannel();
+		} else {
+			channel = SocketChannel.open(new InetSocketAddress(host, port));
+		}
+		EventFormatter frm = getEventFormatter();
+		if (frm instanceof BinaryFormatter) {
+			// new connection or file segment starts new dictionary
+			((BinaryFormatter) frm).reset();
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (channel != null) {
+			try {
+				channel.close();
+			} finally {
+				channel = null;
+			}
+		}
+	}
+
+	@Override
+	protected void _checkState() throws IllegalStateException {
+		if (!isOpen()) {
+			throw new IllegalStateException("Sink closed: " + toString());
+		}
+	}
+
+	@Override
+	protected void _log(TrackingEvent event) throws IOException {
+		EventFormatter frm = getEventFormatter();
+		synchronized (writeLock) {
+			if (frm instanceof BinaryFormatter) {
+				((BinaryFormatter) frm).format(event, resetBytes());
+				writeBytes();
+			} else if (frm instanceof StreamingFormatter) {
+				writeChars(((StreamingFormatter) frm).format(event, resetBuilder()));
+			} else {
+				writeChars(frm.format(event));
+			}
+		}
+	}
+
+	@Override
+	protected void _log(TrackingActivity activity) throws IOException {
+		EventFormatter frm = getEventFormatter();
+		synchronized (writeLock) {
+			if (frm instanceof BinaryFormatter) {
+				((BinaryFormatter) frm).format(activity, resetBytes());
+				writeBytes();
+			} else if (frm instanceof BatchingFormatter) {
+				writeBatches(((BatchingFormatter) frm).formatBatches(activity, resetBuilder()));
+			} else if (frm instanceof StreamingFormatter) {
+				writeChars(((StreamingFormatter) frm).format(activity, resetBuilder()));
+			} else {
+				writeChars(frm.format(activity));
+			}
+		}
+	}
+
+	@Override
+	protected void _log(Snapshot snapshot) throws IOException {
+		EventFormatter frm = getEventFormatter();
+		synchronized (writeLock) {
+			if (frm instanceof BinaryFormatter) {
+				((BinaryFormatter) frm).format(snapshot, resetBytes());
+				writeBytes();
+			} else if (frm instanceof StreamingFormatter) {
+				writeChars(((StreamingFormatter) frm).format(snapshot, resetBuilder()));
+			} else {
+				writeChars(frm.format(snapshot));
+			}
+		}
+	}
+
+	@Override
+	protected void _log(long ttl, Source src, OpLevel sev, String msg, Object... args) throws IOException {
+		EventFormatter frm = getEventFormatter();
+		synchronized (writeLock) {
+			if (frm instanceof BinaryFormatter) {
+				((BinaryFormatter) frm).format(resetBytes(), ttl, src, sev, msg, args);
+				writeBytes();
+			} else if (frm instanceof StreamingFormatter) {
+				writeChars(((StreamingFormatter) frm).format(resetBuilder(), ttl, src, sev, msg, args));
+			} else {
+				writeChars(frm.format(ttl, src, sev, msg, args));
+			}
+		}
+	}
+
+	@Override
+	protected void _write(Object msg, Object... args) throws IOException, InterruptedException {
+		EventFormatter frm = getEventFormatter();
+		synchronized (writeLock) {
+			if (frm instanceof BinaryFormatter) {
+				((BinaryFormatter) frm).format(resetBytes(), 0, null, OpLevel.NONE, String.valueOf(msg), args);
+				writeBytes();
+			} else {
+				writeChars(frm.format(msg, args));
+			}
+		}
+	}
+
+	private ByteArrayOutputStream resetBytes() {
+		if (bytes.size() > MAX_RETAINED_BUILDER_CAPACITY) {
+			bytes = new BytesOutputStream();
+		} else {
+			bytes.reset();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Writes binary formatter produced bytes to channel.
+	 *
+	 * @throws IOException
+	 *             if I/O error occurs while writing to channel
+	 */
+	private void writeBytes() throws IOException {
+		try {
+			_checkState();
+			ByteBuffer bb = bytes.toByteBuffer();
+			int count = bb.remaining();
+			while (bb.hasRemaining()) {
+				channel.write(bb);
+			}
+			incrementBytesSent(count);
+		} catch (IOException exc) {
+			resetBinaryStream();
+			throw exc;
+		} catch (RuntimeException exc) {
+			resetBinaryStream();
+			throw exc;
+		}
+	}
+
+	/**
+	 * Closes channel (record may be partially written) and resets binary formatter, so stream gets restarted with new
+	 * segment when sink is reopened.
+	 */
+	private void resetBinaryStream() {
+		synchronized (this) {
+			if (channel != null) {
+				try {
+					channel.close();
+				} catch (IOException exc) {
+				} finally {
+					channel = null;
+				}
+			}
+		}
+		((BinaryFormatter) getEventFormatter()).reset();
+	}
+
+	private StringBuilder resetBuilder() {
+		if (builder.capacity() > MAX_RETAINED_BUILDER_CAPACITY) {
+			builder = new StringBuilder(4096);
+		} else {
+			builder.setLength(0);
+		}
+		return builder;
+	}
+
+	/**
+	 * Encodes provided chars in UTF-8 into sink write buffer, flushing buffer to channel every time it gets full. Line
+	 * feed is added if chars sequence does not end with it.
+	 *
+	 * @param chars
+	 *            chars sequence to write
+	 * @throws IOException
+	 *             if I/O error occurs while writing to channel
+	 */
+	private void writeChars(CharSequence chars) throws IOException {
+		_checkState();
+		if (chars == null || chars.length() == 0) {
+			return;
+		}
+
+		buffer.clear();
+		encode(CharBuffer.wrap(chars));
+		if (chars.charAt(chars.length() - 1) != '\n') {
+			encode(LF.duplicate());
+		}
+		flushBuffer();
+	}
+
+	/**
+	 * Writes provided formatted output batches, each of them flushed to channel as separate write.
+	 *
+	 * @param batches
+	 *            formatted output batches to write
+	 * @throws IOException
+	 *             if I/O error occurs while writing to channel
+	 */
+	private void writeBatches(List<CharSequence> batches) throws IOException {
+		for (CharSequence batch : batches) {
+			writeChars(batch);
+		}
+	}
+
+	private void encode(CharBuffer in) throws IOException {
+		encoder.reset();
+		while (true) {
+			CoderResult cr = encoder.encode(in, buffer, true);
+			if (cr.isOverflow()) {
+				flushBuffer();
+			} else if (cr.isError()) {
+				cr.throwException();
+			} else {
+				break;
+			}
+		}
+		while (encoder.flush(buffer).isOverflow()) {
+			flushBuffer();
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		buffer.flip();
+		int bytes = buffer.remaining();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+		incrementBytesSent(bytes);
+	}
+
+	/**
+	 * Byte array output stream exposing written bytes without copying them.
+	 */
+	private static class BytesOutputStream extends ByteArrayOutputStream {
+		BytesOutputStream() {
+			super(4096);
+		}
+
+		ByteBuffer toByteBuffer() {
+			return ByteBuffer.wrap(buf, 0, count);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() + "{file: " + fileName + ", host: " + host + ", port: " + port + ", open: "
+				+ isOpen() + "}";
+	}
+}
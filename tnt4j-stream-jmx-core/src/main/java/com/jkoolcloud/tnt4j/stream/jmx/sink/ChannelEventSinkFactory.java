@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jkoolcloud.tnt4j.stream.jmx.sink;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+
+import com.jkoolcloud.tnt4j.config.ConfigException;
+import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.sink.AbstractEventSinkFactory;
+import com.jkoolcloud.tnt4j.sink.EventSink;
+import com.jkoolcloud.tnt4j.stream.jmx.format.FactNameValueFormatter;
+import com.jkoolcloud.tnt4j.utils.Utils;
+
+/**
+ * This class implements factory of {@link ChannelEventSink} instances. Sink writes events to file, if configuration
+ * property {@code "FileName"} is defined, or to socket defined by {@code "Host"} and {@code "Port"} properties
+ * otherwise, e.g.:
+ *
+ * <pre>
+ * {@code
+ * 	event.sink.factory.EventSinkFactory: com.jkoolcloud.tnt4j.stream.jmx.sink.ChannelEventSinkFactory
+ * 	event.sink.factory.EventSinkFactory.FileName: logs/tnt4j-stream-jmx_samples.log
+ * 	event.sink.factory.EventSinkFactory.Append: true
+ * 	event.sink.factory.EventSinkFactory.BufferSize: 65536
+ * }
+ * </pre>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see ChannelEventSink
+ */
+public class ChannelEventSinkFactory extends AbstractEventSinkFactory {
+	private String fileName;
+	private boolean append = true;
+	private String host = "localhost";
+	private int port = 6060;
+	private int bufferSize = ChannelEventSink.DEFAULT_BUFFER_SIZE;
+
+	@Override
+	public EventSink getEventSink(String name) {
+		return getEventSink(name, System.getProperties());
+	}
+
+	@Override
+	public EventSink getEventSink(String name, Properties props) {
+		return getEventSink(name, props, new FactNameValueFormatter());
+	}
+
+	@Override
+	public EventSink getEventSink(String name, Properties props, EventFormatter frmt) {
+		ChannelEventSink sink = fileName == null ? new ChannelEventSink(name, host, port, bufferSize, frmt)
+				: new ChannelEventSink(name, fileName, append, bufferSize, frmt);
+		return configureSink(sink);
+	}
+
+	@Override
+	protected EventSink configureSink(EventSink sink) {
+		EventSink cSink = super.configureSink(sink);
+		try {
+			cSink.open();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return cSink;
+	}
+
+	@Override
+	public void setConfiguration(Map<String, ?> settings) throws ConfigException {
+		super.setConfiguration(settings);
+
+		fileName = Utils.getString("FileName", settings, fileName);
+		append = Utils.getBoolean("Append", settings, append);
+		host = Utils.getString("Host", settings, host);
+		port = Utils.getInt("Port", settings, port);
+		bufferSize = Utils.getInt("BufferSize", settings, bufferSize);
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jkoolcloud.tnt4j.stream.jmx.sink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.core.Snapshot;
+import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.sink.AbstractEventSink;
+import com.jkoolcloud.tnt4j.source.Source;
+import com.jkoolcloud.tnt4j.stream.jmx.format.PrometheusFormatter;
+import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
+import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
+
+/**
+ * This class implements event sink keeping last sampled values rendered in Prometheus text exposition format in
+ * memory, and serving them to Prometheus scrape requests over embedded {@link PrometheusHttpEndpoint}.
+ * <p>
+ * Sampled activity may contain only part of MBeans (e.g. when sampler runs in delta mode, MBean filter groups have
+ * different sampling periods, or MBeans get deferred by cycle deadline), so samples are merged per MBean object name:
+ * last values of MBeans and attributes not present in activity are retained. Samples of MBean are removed when MBean
+ * gets unregistered.
+ * <p>
+ * Merged samples are rendered to bytes once per sampled activity. Compressed sample copy is made once per sample on
+ * first scrape request accepting {@code gzip} encoding. Plain log messages and events are not exposed.
+ *
+ * @version $Revision: 1 $
+ *
+ * @see PrometheusEventSinkFactory
+ * @see PrometheusFormatter
+ */
+public class PrometheusEventSink extends AbstractEventSink implements NotificationListener {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final int port;
+	private final String path;
+
+	private PrometheusHttpEndpoint endpoint;
+	private volatile Sample lastSample;
+	private final Map<Object, PrometheusFormatter.Series> series = new LinkedHashMap<Object, PrometheusFormatter.Series>();
+	private StringBuilder builder = new StringBuilder(4096);
+
+	/**
+	 * Create new instance of {@code PrometheusEventSink}.
+	 *
+	 * @param name
+	 *            sink name
+	 * @param port
+	 *            scrape endpoint port number
+	 * @param path
+	 *            scrape endpoint context path
+	 * @param frm
+	 *            event formatter, if it is not instance of {@link PrometheusFormatter}, new
+	 *            {@link PrometheusFormatter} instance is used instead
+	 */
+	public PrometheusEventSink(String name, int port, String path, EventFormatter frm) {
+		super(name, frm instanceof PrometheusFormatter ? frm : new PrometheusFormatter());
+		this.port = port;
+		this.path = path;
+	}
+
+	@Override
+	public Object getSinkHandle() {
+		return endpoint;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return endpoint != null;
+	}
+
+	@Override
+	public synchronized void open() throws IOException {
+		if (isOpen()) {
+			return;
+		}
+		endpoint = PrometheusHttpEndpoint.bind(port, path, this);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (endpoint != null) {
+			try {
+				endpoint.unbind(this);
+			} finally {
+				endpoint = null;
+				lastSample = null;
+				series.clear();
+			}
+		}
+	}
+
+	@Override
+	protected void _checkState() throws IllegalStateException {
+		if (!isOpen()) {
+			throw new IllegalStateException("Sink closed: " + toString());
+		}
+	}
+
+	@Override
+	protected void _log(TrackingEvent event) throws IOException {
+	}
+
+	@Override
+	protected void _log(TrackingActivity activity) throws IOException {
+		PrometheusFormatter frm = (PrometheusFormatter) getEventFormatter();
+		synchronized (this) {
+			frm.mergeSeries(activity.getSnapshots(), series);
+			render();
+		}
+	}
+
+	private void render() {
+		if (builder.capacity() > 4 * 1024 * 1024) {
+			builder = new StringBuilder(4096);
+		} else {
+			builder.setLength(0);
+		}
+		byte[] bytes = PrometheusFormatter.formatSeries(series, builder).toString().getBytes(UTF8);
+		lastSample = new Sample(bytes);
+		incrementBytesSent(bytes.length);
+		PrometheusHttpEndpoint ep = endpoint;
+		if (ep != null) {
+			ep.sampleUpdated();
+		}
+	}
+
+	/**
+	 * Removes samples of unregistered MBean.
+	 */
+	@Override
+	public void handleNotification(Notification notification, Object handback) {
+		if (notification instanceof MBeanServerNotification && MBeanServerNotification.UNREGISTRATION_NOTIFICATION
+				.equalsIgnoreCase(notification.getType())) {
+			synchronized (this) {
+				if (series.remove(((MBeanServerNotification) notification).getMBeanName()) != null) {
+					render();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies samples of this sink into provided series map. Samples already present in map for same MBean and metric
+	 * name are replaced.
+	 *
+	 * @param target
+	 *            series map to copy samples into
+	 */
+	synchronized void copySeries(Map<Object, PrometheusFormatter.Series> target) {
+		for (Map.Entry<Object, PrometheusFormatter.Series> se : series.entrySet()) {
+			PrometheusFormatter.Series ts = target.get(se.getKey());
+			if (ts == null) {
+				ts = new PrometheusFormatter.Series(se.getValue().getLabels());
+				target.put(se.getKey(), ts);
+			}
+			ts.getSamples().putAll(se.getValue().getSamples());
+		}
+	}
+
+	@Override
+	protected void _log(Snapshot snapshot) throws IOException {
+	}
+
+	@Override
+	protected void _log(long ttl, Source src, OpLevel sev, String msg, Object... args) throws IOException {
+	}
+
+	@Override
+	protected void _write(Object msg, Object... args) throws IOException, InterruptedException {
+	}
+
+	/**
+	 * Returns last completed sample bytes.
+	 *
+	 * @param gzip
+	 *            flag indicating whether to return gzip compressed sample bytes
+	 * @return last completed sample bytes, or {@code null} if there is no sample completed yet
+	 * @throws IOException
+	 *             if sample compression fails
+	 */
+	public byte[] getLastSample(boolean gzip) throws IOException {
+		Sample sample = lastSample;
+		if (sample == null) {
+			return null;
+		}
+		return gzip ? sample.getGzipBytes() : sample.bytes;
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() + "{port: " + port + ", path: " + path + ", open: " + isOpen() + "}";
+	}
+
+	/**
+	 * Rendered sample bytes and lazily made compressed copy of them.
+	 */
+	static class Sample {
+		final byte[] bytes;
+		private volatile byte[] gzipBytes;
+
+		Sample(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		byte[] getGzipBytes() throws IOException {
+			byte[] gz = gzipBytes;
+			if (gz == null) {
+				ByteArrayOutputStream bos = new ByteArrayOutputStream(bytes.length / 4 + 64);
+				GZIPOutputStream gzos = new GZIPOutputStream(bos);
+				try {
+					gzos.write(bytes);
+				} finally {
+					gzos.close();
+				}
+				gz = bos.toByteArray();
+				gzipBytes = gz;
+			}
+			return gz;
+		}
+	}
+}
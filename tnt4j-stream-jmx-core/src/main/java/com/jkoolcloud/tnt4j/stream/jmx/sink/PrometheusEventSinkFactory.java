@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jkoolcloud.tnt4j.stream.jmx.sink;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+
+import com.jkoolcloud.tnt4j.config.ConfigException;
+import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.sink.AbstractEventSinkFactory;
+import com.jkoolcloud.tnt4j.sink.EventSink;
+import com.jkoolcloud.tnt4j.stream.jmx.format.PrometheusFormatter;
+import com.jkoolcloud.tnt4j.utils.Utils;
+
+/**
+ * This class implements factory of {@link PrometheusEventSink} instances. Sink exposes last completed sample for
+ * Prometheus scraping over HTTP on {@code "Port"} and context {@code "Path"} defined by configuration, e.g.:
+ *
+ * <pre>
+ * {@code
+ * 	event.sink.factory.EventSinkFactory: com.jkoolcloud.tnt4j.stream.jmx.sink.PrometheusEventSinkFactory
+ * 	event.sink.factory.EventSinkFactory.Port: 9404
+ * 	event.sink.factory.EventSinkFactory.Path: /metrics
+ * }
+ * </pre>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see PrometheusEventSink
+ */
+public class PrometheusEventSinkFactory extends AbstractEventSinkFactory {
+	/**
+	 * Default scrape endpoint port number.
+	 */
+	public static final int DEFAULT_PORT = 9404;
+	/**
+	 * Default scrape endpoint context path.
+	 */
+	public static final String DEFAULT_PATH = "/metrics";
+
+	private int port = DEFAULT_PORT;
+	private String path = DEFAULT_PATH;
+
+	@Override
+	public EventSink getEventSink(String name) {
+		return getEventSink(name, System.getProperties());
+	}
+
+	@Override
+	public EventSink getEventSink(String name, Properties props) {
+		return getEventSink(name, props, new PrometheusFormatter());
+	}
+
+	@Override
+	public EventSink getEventSink(String name, Properties props, EventFormatter frmt) {
+		return configureSink(new PrometheusEventSink(name, port, path, frmt));
+	}
+
+	@Override
+	protected EventSink configureSink(EventSink sink) {
+		EventSink cSink = super.configureSink(sink);
+		try {
+			cSink.open();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return cSink;
+	}
+
+	@Override
+	public void setConfiguration(Map<String, ?> settings) throws ConfigException {
+		super.setConfiguration(settings);
+
+		port = Utils.getInt("Port", settings, port);
+		path = Utils.getString("Path", settings, path);
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jkoolcloud.tnt4j.stream.jmx.sink;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.jkoolcloud.tnt4j.stream.jmx.format.PrometheusFormatter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * This class implements lightweight embedded HTTP endpoint serving Prometheus scrape requests. Endpoint serves last
+ * samples of all bound {@link PrometheusEventSink}s from memory: samples of single bound sink are rendered and
+ * compressed when sampled, not when scraped.
+ * <p>
+ * Endpoint is shared by all sinks bound to same port and context path, and is stopped when last sink gets unbound.
+ * When multiple sinks are bound, their samples are merged into single exposition (so every metric family is rendered
+ * only once), rendered on first scrape after any of sinks gets new sample.
+ *
+ * @version $Revision: 1 $
+ *
+ * @see PrometheusEventSink
+ */
+public class PrometheusHttpEndpoint implements HttpHandler {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final Map<Integer, PrometheusHttpEndpoint> ENDPOINTS = new HashMap<Integer, PrometheusHttpEndpoint>();
+
+	private final int port;
+	private final String path;
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final List<PrometheusEventSink> sinks = new CopyOnWriteArrayList<PrometheusEventSink>();
+
+	private final AtomicLong version = new AtomicLong();
+	private PrometheusEventSink.Sample mergedSample;
+	private long mergedVersion = -1;
+
+	private PrometheusHttpEndpoint(int port, String path) throws IOException {
+		this.port = port;
+		this.path = path;
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "prometheus-endpoint-" + PrometheusHttpEndpoint.this.port);
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		this.server = HttpServer.create(new InetSocketAddress(port), 0);
+		this.server.createContext(path, this);
+		this.server.setExecutor(executor);
+		this.server.start();
+	}
+
+	/**
+	 * Binds provided sink to endpoint listening on provided port. Endpoint is started if there is no endpoint on that
+	 * port yet. Sinks bound to same port must use same context path.
+	 *
+	 * @param port
+	 *            port number to listen
+	 * @param path
+	 *            scrape request context path
+	 * @param sink
+	 *            sink to bind
+	 * @return endpoint instance sink is bound to
+	 * @throws IOException
+	 *             if endpoint fails to start, or endpoint on that port serves different context path
+	 */
+	public static synchronized PrometheusHttpEndpoint bind(int port, String path, PrometheusEventSink sink)
+			throws IOException {
+		PrometheusHttpEndpoint endpoint = ENDPOINTS.get(port);
+		if (endpoint == null) {
+			endpoint = new PrometheusHttpEndpoint(port, path);
+			ENDPOINTS.put(port, endpoint);
+		} else if (!endpoint.path.equals(path)) {
+			throw new IOException("Prometheus endpoint on port " + port + " already serves path '" + endpoint.path
+					+ "', can't bind path '" + path + "'");
+		}
+		endpoint.sinks.add(sink);
+		return endpoint;
+	}
+
+	/**
+	 * Unbinds provided sink from this endpoint. Endpoint is stopped if no more sinks are bound to it.
+	 *
+	 * @param sink
+	 *            sink to unbind
+	 */
+	public void unbind(PrometheusEventSink sink) {
+		synchronized (PrometheusHttpEndpoint.class) {
+			sinks.remove(sink);
+			if (sinks.isEmpty()) {
+				ENDPOINTS.remove(port);
+				server.stop(0);
+				executor.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Notifies endpoint that bound sink has new sample rendered.
+	 */
+	void sampleUpdated() {
+		version.incrementAndGet();
+	}
+
+	/**
+	 * Returns samples bytes to serve: last sample of single bound sink, or merged samples of all bound sinks.
+	 *
+	 * @param gzip
+	 *            flag indicating whether to return gzip compressed samples bytes
+	 * @return samples bytes, or {@code null} if there are no samples yet
+	 * @throws IOException
+	 *             if samples compression fails
+	 */
+	byte[] getSample(boolean gzip) throws IOException {
+		List<PrometheusEventSink> bSinks = sinks;
+		if (bSinks.size() == 1) {
+			return bSinks.get(0).getLastSample(gzip);
+		}
+
+		PrometheusEventSink.Sample sample;
+		synchronized (this) {
+			long v = version.get();
+			if (mergedSample == null || mergedVersion != v) {
+				Map<Object, PrometheusFormatter.Series> series = new LinkedHashMap<Object, PrometheusFormatter.Series>();
+				for (PrometheusEventSink sink : bSinks) {
+					sink.copySeries(series);
+				}
+				mergedSample = series.isEmpty() ? null
+						: new PrometheusEventSink.Sample(PrometheusFormatter
+								.formatSeries(series, new StringBuilder(4096)).toString().getBytes(UTF8));
+				mergedVersion = v;
+			}
+			sample = mergedSample;
+		}
+		return sample == null ? null : gzip ? sample.getGzipBytes() : sample.bytes;
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		try {
+			String method = exchange.getRequestMethod();
+			if (!"GET".equalsIgnoreCase(method) && !"HEAD".equalsIgnoreCase(method)) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+
+			String acceptEnc = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+			boolean gzip = acceptEnc != null && acceptEnc.contains("gzip");
+
+			byte[] body = getSample(gzip);
+
+			exchange.getResponseHeaders().set("Content-Type", PrometheusFormatter.CONTENT_TYPE);
+			if (gzip) {
+				exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+			}
+			if ("HEAD".equalsIgnoreCase(method)) {
+				exchange.sendResponseHeaders(200, -1);
+				return;
+			}
+			if (body == null || body.length == 0) {
+				exchange.sendResponseHeaders(200, -1);
+				return;
+			}
+			exchange.sendResponseHeaders(200, body.length);
+			OutputStream os = exchange.getResponseBody();
+			os.write(body);
+			os.flush();
+		} finally {
+			exchange.close();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.stream.jmx;
+
+/**
+ * Simple timing harness used by tests to compare costs of alternative implementations. Measured task is run for a
+ * number of warm-up rounds first, then for a number of measured rounds, and best (lowest) round time is reported, so
+ * JIT compilation and GC pauses have less effect on results.
+ * <p>
+ * Results are only printed, never asserted, since timings depend on machine running tests.
+ *
+ * @version $Revision: 1 $
+ */
+public final class TimingHarness {
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int MEASURED_ROUNDS = 10;
+
+	/**
+	 * Result sink preventing JIT from eliminating measured code.
+	 */
+	private static volatile Object sink;
+
+	private TimingHarness() {
+	}
+
+	/**
+	 * Measured task.
+	 */
+	public interface Task {
+		/**
+		 * Runs measured operation once.
+		 *
+		 * @return operation result, consumed by harness
+		 * @throws Exception
+		 *             if operation fails
+		 */
+		Object run() throws Exception;
+	}
+
+	/**
+	 * Measures provided task and prints time taken by single task run.
+	 *
+	 * @param name
+	 *            task name to print
+	 * @param opsPerRound
+	 *            number of task runs within single round
+	 * @param task
+	 *            task to measure
+	 * @return best measured time of single task run in nanoseconds
+	 * @throws Exception
+	 *             if task run fails
+	 */
+	public static double measure(String name, int opsPerRound, Task task) throws Exception {
+		return measure(name, WARMUP_ROUNDS, MEASURED_ROUNDS, opsPerRound, task);
+	}
+
+	/**
+	 * Measures provided task using provided number of warm-up and measured rounds, and prints time taken by single
+	 * task run.
+	 *
+	 * @param name
+	 *            task name to print
+	 * @param warmupRounds
+	 *            number of warm-up rounds
+	 * @param measuredRounds
+	 *            number of measured rounds
+	 * @param opsPerRound
+	 *            number of task runs within single round
+	 * @param task
+	 *            task to measure
+	 * @return best measured time of single task run in nanoseconds
+	 * @throws Exception
+	 *             if task run fails
+	 */
+	public static double measure(String name, int warmupRounds, int measuredRounds, int opsPerRound, Task task)
+			throws Exception {
+		for (int r = 0; r < warmupRounds; r++) {
+			runRound(opsPerRound, task);
+		}
+		long best = Long.MAX_VALUE;
+		for (int r = 0; r < measuredRounds; r++) {
+			best = Math.min(best, runRound(opsPerRound, task));
+		}
+		double nanosPerOp = (double) best / opsPerRound;
+		System.out.println(String.format("%-60s %14.1f ns/op", name, nanosPerOp));
+		return nanosPerOp;
+	}
+
+	private static long runRound(int ops, Task task) throws Exception {
+		long start = System.nanoTime();
+		for (int i = 0; i < ops; i++) {
+			sink = task.run();
+		}
+		return System.nanoTime() - start;
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.stream.jmx.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.management.Attribute;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.openmbean.*;
+
+import org.junit.Test;
+
+import com.jkoolcloud.tnt4j.core.Property;
+import com.jkoolcloud.tnt4j.core.PropertySnapshot;
+import com.jkoolcloud.tnt4j.stream.jmx.conditions.AttributeSample;
+
+/**
+ * Checks that single {@link DefaultSampleListener} instance shared by multiple sampling threads produces same
+ * snapshots as when all MBeans are sampled by single thread.
+ *
+ * @version $Revision: 1 $
+ */
+public class DefaultSampleListenerTest {
+	private static final int THREADS = 8;
+	private static final int ROUNDS = 200;
+	private static final int MBEANS = 16;
+
+	@Test
+	public void testConcurrentSamplingDefaults() throws Exception {
+		assertConcurrentSampling(new HashMap<String, Object>());
+	}
+
+	@Test
+	public void testConcurrentSamplingIndexNames() throws Exception {
+		Map<String, Object> props = new HashMap<String, Object>();
+		props.put(DefaultSampleListener.ListenerProperties.TABULAR_INDEX_NAMES.pName(), true);
+		props.put(DefaultSampleListener.ListenerProperties.COMPOSITE_DELIMITER.pName(), ".");
+		assertConcurrentSampling(props);
+	}
+
+	private static void assertConcurrentSampling(Map<String, Object> props) throws Exception {
+		final List<TestMBean> mbeans = makeMBeans();
+
+		Map<ObjectName, Map<String, Object>> expected = new HashMap<ObjectName, Map<String, Object>>();
+		DefaultSampleListener single = new DefaultSampleListener(props);
+		for (TestMBean mbean : mbeans) {
+			expected.put(mbean.name, sample(single, mbean));
+		}
+		for (Map<String, Object> snap : expected.values()) {
+			assertTrue("Composite and tabular values shall be flattened", snap.size() > 20);
+		}
+
+		final DefaultSampleListener shared = new DefaultSampleListener(props);
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<List<Map<String, Object>>>> results = new ArrayList<Future<List<Map<String, Object>>>>();
+			for (int t = 0; t < THREADS; t++) {
+				final int offset = t;
+				results.add(executor.submit(new Callable<List<Map<String, Object>>>() {
+					@Override
+					public List<Map<String, Object>> call() throws Exception {
+						start.await();
+						List<Map<String, Object>> snaps = new ArrayList<Map<String, Object>>();
+						for (int r = 0; r < ROUNDS; r++) {
+							snaps.add(sample(shared, mbeans.get((offset + r) % mbeans.size())));
+						}
+						return snaps;
+					}
+				}));
+			}
+			start.countDown();
+
+			for (int t = 0; t < THREADS; t++) {
+				List<Map<String, Object>> snaps = results.get(t).get(60, TimeUnit.SECONDS);
+				for (int r = 0; r < ROUNDS; r++) {
+					TestMBean mbean = mbeans.get((t + r) % mbeans.size());
+					assertEquals("Thread " + t + " snapshot of " + mbean.name, expected.get(mbean.name), snaps.get(r));
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static Map<String, Object> sample(DefaultSampleListener listener, TestMBean mbean) throws Exception {
+		PropertySnapshot snapshot = new PropertySnapshot(mbean.name.getDomain(), mbean.name.getCanonicalName());
+		for (MBeanAttributeInfo attr : mbean.info.getAttributes()) {
+			AttributeSample sample = AttributeSample.newAttributeSample(null, snapshot, null, mbean.name, attr);
+			listener.pre(null, sample);
+			sample.sample(new Attribute(attr.getName(), mbean.values.get(attr.getName())));
+			listener.post(null, sample);
+		}
+		listener.complete(null, null, mbean.name, mbean.info, snapshot);
+
+		Map<String, Object> props = new TreeMap<String, Object>();
+		for (Property p : snapshot.getSnapshot()) {
+			props.put(p.getKey(), p.getValue());
+		}
+		return props;
+	}
+
+	private static List<TestMBean> makeMBeans() throws Exception {
+		String[] usageItems = new String[] { "init", "used", "committed", "max" };
+		CompositeType usageType = new CompositeType("Usage", "memory usage", usageItems, usageItems,
+				new OpenType<?>[] { SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG });
+		CompositeType poolType = new CompositeType("Pool", "memory pool",
+				new String[] { "name", "valid", "usage", "peak" }, new String[] { "name", "valid", "usage", "peak" },
+				new OpenType<?>[] { SimpleType.STRING, SimpleType.BOOLEAN, usageType, usageType });
+		TabularType poolsType = new TabularType("Pools", "memory pools", poolType, new String[] { "name" });
+		CompositeType kvType = new CompositeType("Entry", "key/value entry", new String[] { "key", "value" },
+				new String[] { "key", "value" }, new OpenType<?>[] { SimpleType.STRING, SimpleType.STRING });
+		TabularType kvTableType = new TabularType("Entries", "key/value entries", kvType, new String[] { "key" });
+
+		MBeanAttributeInfo[] attrs = new MBeanAttributeInfo[] {
+				new MBeanAttributeInfo("Count", Long.class.getName(), "count", true, false, false),
+				new MBeanAttributeInfo("Name", String.class.getName(), "name", true, false, false),
+				new MBeanAttributeInfo("Usage", CompositeData.class.getName(), "usage", true, false, false),
+				new MBeanAttributeInfo("Pools", TabularData.class.getName(), "pools", true, false, false),
+				new MBeanAttributeInfo("Entries", TabularData.class.getName(), "entries", true, false, false) };
+
+		List<TestMBean> mbeans = new ArrayList<TestMBean>();
+		for (int m = 0; m < MBEANS; m++) {
+			ObjectName name = new ObjectName("test.jmx:type=Memory,name=mbean" + m);
+			Map<String, Object> values = new HashMap<String, Object>();
+			values.put("Count", (long) m * 1000);
+			values.put("Name", "mbean" + m);
+			values.put("Usage", makeUsage(usageType, m));
+			TabularDataSupport pools = new TabularDataSupport(poolsType);
+			for (int p = 0; p < 5; p++) {
+				pools.put(new CompositeDataSupport(poolType, new String[] { "name", "valid", "usage", "peak" },
+						new Object[] { "pool" + p, p % 2 == 0, makeUsage(usageType, m + p),
+								makeUsage(usageType, m * p) }));
+			}
+			values.put("Pools", pools);
+			TabularDataSupport entries = new TabularDataSupport(kvTableType);
+			for (int e = 0; e < 5; e++) {
+				entries.put(new CompositeDataSupport(kvType, new String[] { "key", "value" },
+						new Object[] { "entry" + e, "value" + (m + e) }));
+			}
+			values.put("Entries", entries);
+
+			mbeans.add(new TestMBean(name, new MBeanInfo(TestMBean.class.getName(), "test MBean", attrs, null, null,
+					null), values));
+		}
+		return mbeans;
+	}
+
+	private static CompositeData makeUsage(CompositeType usageType, long seed) throws OpenDataException {
+		return new CompositeDataSupport(usageType, new String[] { "init", "used", "committed", "max" },
+				new Object[] { seed, seed * 2, seed * 3, seed * 4 });
+	}
+
+	private static class TestMBean {
+		private final ObjectName name;
+		private final MBeanInfo info;
+		private final Map<String, Object> values;
+
+		TestMBean(ObjectName name, MBeanInfo info, Map<String, Object> values) {
+			this.name = name;
+			this.info = info;
+			this.values = values;
+		}
+	}
+}
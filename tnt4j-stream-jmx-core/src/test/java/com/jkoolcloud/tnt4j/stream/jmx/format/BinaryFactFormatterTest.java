@@ -0,0 +1,201 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.stream.jmx.format;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.*;
+
+import org.junit.Test;
+
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.core.PropertySnapshot;
+
+/**
+ * Round trip tests of {@link BinaryFactFormatter} produced output decoded by {@link BinaryFactDecoder}.
+ *
+ * @version $Revision: 1 $
+ */
+public class BinaryFactFormatterTest {
+
+	@Test
+	public void testValueTypes() throws Exception {
+		Map<String, Object> values = new LinkedHashMap<String, Object>();
+		values.put("bigIntLarge", new BigInteger("123456789012345678901234567890"));
+		values.put("bigIntLargeNeg", BigInteger.ONE.shiftLeft(64).negate());
+		values.put("bigIntMinLong", BigInteger.valueOf(Long.MIN_VALUE));
+		values.put("bigIntOverLong", BigInteger.ONE.shiftLeft(63));
+		values.put("bigIntSmall", BigInteger.valueOf(-42));
+		values.put("boolFalse", false);
+		values.put("boolTrue", true);
+		values.put("byteNeg", (byte) -128);
+		values.put("double", 12345.6789d);
+		values.put("doubleNaN", Double.NaN);
+		values.put("doubleNeg", -0.001d);
+		values.put("float", 1.5f);
+		values.put("floatMin", Float.MIN_VALUE);
+		values.put("intMin", Integer.MIN_VALUE);
+		values.put("longMax", Long.MAX_VALUE);
+		values.put("longMin", Long.MIN_VALUE);
+		values.put("longMinusOne", -1L);
+		values.put("longNeg", -300L);
+		values.put("longZero", 0L);
+		values.put("nullValue", null);
+		values.put("shortNeg", (short) -1234);
+		values.put("string", "text, with \"specials\"");
+		values.put("stringEmpty", "");
+		values.put("stringUnicode", "žā中文");
+
+		BinaryFactFormatter formatter = newFormatter(-1);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		formatter.format(makeSnapshot("Values", values), out);
+
+		List<BinaryFactDecoder.Record> records = decode(out);
+		assertEquals(1, records.size());
+		BinaryFactDecoder.Record record = records.get(0);
+		assertFalse(record.isMessage());
+		assertEquals("OBJ:Metrics" + FactNameValueFormatter.PATH_DELIM + "Values", record.getPath());
+		Map<String, Object> decoded = getPropertyValues(record);
+		assertEquals(values.size(), decoded.size());
+
+		assertEquals("123456789012345678901234567890", decoded.get("bigIntLarge"));
+		assertEquals("-18446744073709551616", decoded.get("bigIntLargeNeg"));
+		assertEquals(Long.MIN_VALUE, decoded.get("bigIntMinLong"));
+		assertEquals("9223372036854775808", decoded.get("bigIntOverLong"));
+		assertEquals(-42L, decoded.get("bigIntSmall"));
+		assertEquals(Boolean.FALSE, decoded.get("boolFalse"));
+		assertEquals(Boolean.TRUE, decoded.get("boolTrue"));
+		assertEquals(-128L, decoded.get("byteNeg"));
+		assertEquals(12345.6789d, decoded.get("double"));
+		assertEquals(Double.NaN, decoded.get("doubleNaN"));
+		assertEquals(-0.001d, decoded.get("doubleNeg"));
+		assertEquals(1.5f, decoded.get("float"));
+		assertEquals(Float.MIN_VALUE, decoded.get("floatMin"));
+		assertEquals((long) Integer.MIN_VALUE, decoded.get("intMin"));
+		assertEquals(Long.MAX_VALUE, decoded.get("longMax"));
+		assertEquals(Long.MIN_VALUE, decoded.get("longMin"));
+		assertEquals(-1L, decoded.get("longMinusOne"));
+		assertEquals(-300L, decoded.get("longNeg"));
+		assertEquals(0L, decoded.get("longZero"));
+		assertTrue(decoded.containsKey("nullValue"));
+		assertNull(decoded.get("nullValue"));
+		assertEquals(-1234L, decoded.get("shortNeg"));
+		assertEquals("text, with \"specials\"", decoded.get("string"));
+		assertEquals("", decoded.get("stringEmpty"));
+		assertEquals("žā中文", decoded.get("stringUnicode"));
+	}
+
+	@Test
+	public void testDictionaryOverflow() throws Exception {
+		BinaryFactFormatter formatter = newFormatter(4);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		List<Map<String, Object>> expected = new ArrayList<Map<String, Object>>();
+		for (int i = 0; i < 20; i++) {
+			Map<String, Object> values = new TreeMap<String, Object>();
+			// every snapshot brings new keys, and some of them has more keys than dictionary bound
+			for (int k = 0; k < 1 + i % 6; k++) {
+				values.put("key" + (i * 3 + k), (long) i * k - 5);
+			}
+			values.put("common", "value" + i);
+			expected.add(values);
+			formatter.format(makeSnapshot("Snap" + i % 3, values), out);
+		}
+
+		List<BinaryFactDecoder.Record> records = decode(out);
+		assertEquals(expected.size(), records.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals("OBJ:Metrics" + FactNameValueFormatter.PATH_DELIM + "Snap" + i % 3, records.get(i).getPath());
+			assertEquals(expected.get(i), getPropertyValues(records.get(i)));
+		}
+	}
+
+	@Test
+	public void testReset() throws Exception {
+		Map<String, Object> values = new TreeMap<String, Object>();
+		values.put("count", 10L);
+		values.put("name", "name");
+
+		BinaryFactFormatter formatter = newFormatter(-1);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		formatter.format(makeSnapshot("Snap", values), out);
+		assertEquals(values, getPropertyValues(decode(out).get(0)));
+
+		// dictionary entries are written only once per segment, so next output can't be decoded alone
+		out.reset();
+		formatter.format(makeSnapshot("Snap", values), out);
+		try {
+			decode(out);
+			fail("Output shall refer dictionary entries of previous segment");
+		} catch (IOException exc) {
+		}
+
+		// after reset output starts new segment having all used dictionary entries
+		formatter.reset();
+		out.reset();
+		formatter.format(makeSnapshot("Snap", values), out);
+		formatter.format(out, 0, null, OpLevel.WARNING, "message {0}", new Object[] { "text" });
+		List<BinaryFactDecoder.Record> records = decode(out);
+		assertEquals(2, records.size());
+		assertEquals(values, getPropertyValues(records.get(0)));
+		assertTrue(records.get(1).isMessage());
+		assertEquals("WARNING", records.get(1).getLevel());
+		assertEquals("message text", records.get(1).getMessage());
+	}
+
+	private static BinaryFactFormatter newFormatter(int maxDictionarySize) {
+		BinaryFactFormatter formatter = new BinaryFactFormatter();
+		Map<String, Object> settings = new HashMap<String, Object>();
+		if (maxDictionarySize > 0) {
+			settings.put("MaxDictionarySize", maxDictionarySize);
+		}
+		formatter.setConfiguration(settings);
+		return formatter;
+	}
+
+	private static PropertySnapshot makeSnapshot(String name, Map<String, Object> values) {
+		PropertySnapshot snapshot = new PropertySnapshot(name, name);
+		for (Map.Entry<String, Object> ve : values.entrySet()) {
+			snapshot.add(ve.getKey(), ve.getValue());
+		}
+		return snapshot;
+	}
+
+	private static List<BinaryFactDecoder.Record> decode(ByteArrayOutputStream out) throws IOException {
+		BinaryFactDecoder decoder = new BinaryFactDecoder(new ByteArrayInputStream(out.toByteArray()));
+		List<BinaryFactDecoder.Record> records = new ArrayList<BinaryFactDecoder.Record>();
+		BinaryFactDecoder.Record record;
+		while ((record = decoder.read()) != null) {
+			records.add(record);
+		}
+		return records;
+	}
+
+	/**
+	 * Maps decoded record values by property key, which is last token of decoded key path.
+	 */
+	private static Map<String, Object> getPropertyValues(BinaryFactDecoder.Record record) {
+		Map<String, Object> values = new TreeMap<String, Object>();
+		for (Map.Entry<String, Object> ve : record.getValues().entrySet()) {
+			String path = ve.getKey();
+			values.put(path.substring(path.lastIndexOf(FactNameValueFormatter.PATH_DELIM) + 1), ve.getValue());
+		}
+		return values;
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.stream.jmx.format;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.*;
+
+import org.junit.Test;
+
+import com.jkoolcloud.tnt4j.core.Property;
+import com.jkoolcloud.tnt4j.core.PropertySnapshot;
+import com.jkoolcloud.tnt4j.stream.jmx.TimingHarness;
+
+/**
+ * Checks {@link FactPathValueFormatter#getUniquePropertyKey(String, Property[], int)} against previously used linear
+ * scan algorithm, and measures formatting of large snapshot.
+ *
+ * @version $Revision: 1 $
+ */
+public class FactPathValueFormatterTest {
+	private static final String[] TOKENS = { "a", "b", "a_", "a__", "ab", "b_", "Usage", "Usage_", "max" };
+
+	@Test
+	public void testUniquePropertyKey() {
+		assertUniquePropertyKeys(newFormatter(null));
+		assertUniquePropertyKeys(newFormatter("#"));
+		assertUniquePropertyKeys(newFormatter("~dup"));
+	}
+
+	@Test
+	public void testUniquePropertyKeySamples() {
+		FactPathValueFormatter formatter = newFormatter(null);
+		Property[] pArray = toProperties(Arrays.asList("a", "a\\x", "a_\\y", "a__", "b", "b\\c", "b\\c\\d"));
+		String[] expected = { "a__", "a\\x", "a_\\y", "a__", "b_", "b\\c_", "b\\c\\d" };
+		for (int i = 0; i < pArray.length; i++) {
+			assertEquals(expected[i], formatter.getUniquePropertyKey(pArray[i].getKey(), pArray, i));
+		}
+	}
+
+	@Test
+	public void testLargeSnapshotTiming() throws Exception {
+		final FactPathValueFormatter formatter = newFormatter(null);
+		final PropertySnapshot snapshot = new PropertySnapshot("test.jmx", "test.jmx:type=Large");
+		for (int i = 0; i < 10000; i++) {
+			snapshot.add("Attr" + (i % 100) + "\\Item" + (i / 100), (long) i);
+		}
+		for (int i = 0; i < 100; i++) {
+			snapshot.add("Attr" + i, (long) i); // leaf having branch nodes
+		}
+		final Property[] pArray = formatter.getPropertiesArray(snapshot);
+		assertTrue(pArray.length > 10000);
+
+		System.out.println("Unique keys of " + pArray.length + " properties snapshot:");
+		// linear scan is way too slow to be measured in many rounds
+		TimingHarness.measure("linear scan", 1, 3, 1, new TimingHarness.Task() {
+			@Override
+			public Object run() {
+				int length = 0;
+				for (int i = 0; i < pArray.length; i++) {
+					length += getUniquePropertyKeyLinear(pArray[i].getKey(), pArray, i, formatter.uniqueSuffix)
+							.length();
+				}
+				return length;
+			}
+		});
+		TimingHarness.measure("getUniquePropertyKey", 1, new TimingHarness.Task() {
+			@Override
+			public Object run() {
+				int length = 0;
+				for (int i = 0; i < pArray.length; i++) {
+					length += formatter.getUniquePropertyKey(pArray[i].getKey(), pArray, i).length();
+				}
+				return length;
+			}
+		});
+		TimingHarness.measure("format(Snapshot)", 1, new TimingHarness.Task() {
+			@Override
+			public Object run() {
+				return formatter.format(snapshot);
+			}
+		});
+	}
+
+	private static void assertUniquePropertyKeys(FactPathValueFormatter formatter) {
+		Random random = new Random(42);
+		for (int s = 0; s < 2000; s++) {
+			Set<String> keys = new TreeSet<String>();
+			int count = 1 + random.nextInt(40);
+			for (int k = 0; k < count; k++) {
+				StringBuilder key = new StringBuilder(32);
+				int depth = 1 + random.nextInt(4);
+				for (int d = 0; d < depth; d++) {
+					if (d > 0) {
+						key.append(FactNameValueFormatter.PATH_DELIM);
+					}
+					key.append(TOKENS[random.nextInt(TOKENS.length)]);
+					if (random.nextInt(4) == 0) {
+						key.append(formatter.uniqueSuffix);
+					}
+				}
+				keys.add(key.toString());
+			}
+
+			Property[] pArray = toProperties(keys);
+			for (int i = 0; i < pArray.length; i++) {
+				String pKey = pArray[i].getKey();
+				assertEquals("Unique key of " + pKey + " in " + keys,
+						getUniquePropertyKeyLinear(pKey, pArray, i, formatter.uniqueSuffix),
+						formatter.getUniquePropertyKey(pKey, pArray, i));
+			}
+		}
+	}
+
+	/**
+	 * Previously used {@code O(n)} unique property key resolution algorithm.
+	 */
+	private static String getUniquePropertyKeyLinear(String pKey, Property[] pArray, int pIdx, String uniqueSuffix) {
+		String ppKey;
+		for (int i = pIdx + 1; i < pArray.length; i++) {
+			ppKey = pArray[i].getKey();
+
+			if (ppKey.startsWith(pKey + FactNameValueFormatter.PATH_DELIM)) {
+				pKey += uniqueSuffix;
+			}
+		}
+
+		return pKey;
+	}
+
+	private static FactPathValueFormatter newFormatter(String uniqueSuffix) {
+		FactPathValueFormatter formatter = new FactPathValueFormatter();
+		Map<String, Object> settings = new HashMap<String, Object>();
+		if (uniqueSuffix != null) {
+			settings.put("DuplicateKeySuffix", uniqueSuffix);
+		}
+		formatter.setConfiguration(settings);
+		return formatter;
+	}
+
+	private static Property[] toProperties(Collection<String> sortedKeys) {
+		Property[] pArray = new Property[sortedKeys.size()];
+		int i = 0;
+		for (String key : sortedKeys) {
+			pArray[i++] = new Property(key, i);
+		}
+		return pArray;
+	}
+}
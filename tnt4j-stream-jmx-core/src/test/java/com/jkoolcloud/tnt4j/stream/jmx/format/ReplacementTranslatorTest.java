@@ -0,0 +1,151 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.stream.jmx.format;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.*;
+
+import org.junit.Test;
+
+import com.jkoolcloud.tnt4j.stream.jmx.TimingHarness;
+import com.jkoolcloud.tnt4j.stream.jmx.utils.Utils;
+
+/**
+ * Checks that {@link ReplacementTranslator} makes same replacements as {@link Utils#replace(String, Map)} did for
+ * formatters default and configured (as in {@code config/tnt4j.properties}) replacements, and compares their costs.
+ *
+ * @version $Revision: 1 $
+ */
+public class ReplacementTranslatorTest {
+	private static final String CFG_KEY_REPLACEMENTS = "\" \"->\"_\" \"\\\"\"->\"'\" \"/\"->\"%\" \"=\"->\"\\\\\" "
+			+ "\",\"->\"!'\" \"\\\\\\\\\"->\"\\\\\"";
+	private static final String CFG_VALUE_REPLACEMENTS = "\"\\r\"->\"\\\\r\" \"\\n\"->\"\\\\n\" \";\"->\"|\" "
+			+ "\",\"->\"|\" \"[\"->\"{(\" \"]\"->\")}\" \"\\\"\"->\"'\"";
+	private static final String CFG_SLI_KEY_REPLACEMENTS = "\"\\\\\"->\"_\"";
+
+	private static final String ALPHABET = "abcXYZ019 =/\\\",;:[]{}()#!'|%_\r\n\tžä中文";
+	private static final String[] SAMPLES = { "java.lang:type=Memory",
+			"java.lang:type=GarbageCollector,name=PS MarkSweep",
+			"HeapMemoryUsage\\committed", "LastGcInfo\\memoryUsageAfterGc\\PS Eden Space\\value\\used",
+			"Catalina:type=GlobalRequestProcessor,name=\"http-nio-8080\"", "[1, 2, 3]", "text; with, \"quotes\"",
+			"path/to/resource=value", "1234567890", "" };
+
+	@Test
+	public void testDefaultReplacements() {
+		assertEquivalent(newFormatter(new FactNameValueFormatter(), null, null));
+		assertEquivalent(newFormatter(new FactPathValueFormatter(), null, null));
+		assertEquivalent(newFormatter(new SLIFactPathValueFormatter(), null, null));
+	}
+
+	@Test
+	public void testConfiguredReplacements() {
+		assertEquivalent(newFormatter(new FactNameValueFormatter(), CFG_KEY_REPLACEMENTS, CFG_VALUE_REPLACEMENTS));
+		assertEquivalent(newFormatter(new FactPathValueFormatter(), CFG_SLI_KEY_REPLACEMENTS, null));
+	}
+
+	@Test
+	public void testMultiCharTokens() {
+		Map<String, String> replacements = new HashMap<String, String>();
+		replacements.put("ab", "X");
+		replacements.put("c", "Y");
+		replacements.put("中文", "Z");
+		assertEquivalent(replacements, new ReplacementTranslator(replacements), 20000);
+	}
+
+	@Test
+	public void testTiming() throws Exception {
+		FactNameValueFormatter formatter = newFormatter(new FactNameValueFormatter(), CFG_KEY_REPLACEMENTS,
+				CFG_VALUE_REPLACEMENTS);
+		final Map<String, String> replacements = formatter.keyReplacements;
+		final ReplacementTranslator translator = formatter.keyTranslator;
+		final StringBuilder sb = new StringBuilder(256);
+		int ops = SAMPLES.length * 10000;
+
+		System.out.println("Key replacements of " + SAMPLES.length + " sample strings:");
+		TimingHarness.measure("Utils.replace(String, Map)", ops, new TimingHarness.Task() {
+			int i = 0;
+
+			@Override
+			public Object run() {
+				return Utils.replace(SAMPLES[i++ % SAMPLES.length], replacements);
+			}
+		});
+		TimingHarness.measure("ReplacementTranslator.translate(String)", ops, new TimingHarness.Task() {
+			int i = 0;
+
+			@Override
+			public Object run() {
+				return translator.translate(SAMPLES[i++ % SAMPLES.length]);
+			}
+		});
+		TimingHarness.measure("ReplacementTranslator.translate(CharSequence, StringBuilder)", ops,
+				new TimingHarness.Task() {
+					int i = 0;
+
+					@Override
+					public Object run() {
+						sb.setLength(0);
+						return translator.translate(SAMPLES[i++ % SAMPLES.length], sb);
+					}
+				});
+	}
+
+	private static <T extends FactNameValueFormatter> T newFormatter(T formatter, String keyReplacements,
+			String valueReplacements) {
+		Map<String, Object> settings = new HashMap<String, Object>();
+		if (keyReplacements != null) {
+			settings.put("KeyReplacements", keyReplacements);
+		}
+		if (valueReplacements != null) {
+			settings.put("ValueReplacements", valueReplacements);
+		}
+		formatter.setConfiguration(settings);
+		return formatter;
+	}
+
+	private static void assertEquivalent(FactNameValueFormatter formatter) {
+		assertEquivalent(formatter.keyReplacements, formatter.keyTranslator, 20000);
+		assertEquivalent(formatter.valueReplacements, formatter.valueTranslator, 20000);
+	}
+
+	private static void assertEquivalent(Map<String, String> replacements, ReplacementTranslator translator,
+			int randomCount) {
+		for (String sample : SAMPLES) {
+			assertEquivalent(replacements, translator, sample);
+		}
+
+		Random random = new Random(replacements.hashCode());
+		StringBuilder sb = new StringBuilder(32);
+		for (int i = 0; i < randomCount; i++) {
+			sb.setLength(0);
+			int length = random.nextInt(16);
+			for (int c = 0; c < length; c++) {
+				sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+			}
+			assertEquivalent(replacements, translator, sb.toString());
+		}
+	}
+
+	private static void assertEquivalent(Map<String, String> replacements, ReplacementTranslator translator,
+			String str) {
+		String expected = Utils.replace(str, replacements);
+		assertEquals("Replacements " + replacements + " of [" + str + "]", expected, translator.translate(str));
+		StringBuilder sb = new StringBuilder("prefix");
+		assertEquals("Replacements " + replacements + " of [" + str + "] appended", "prefix" + expected,
+				translator.translate(str, sb).toString());
+	}
+}
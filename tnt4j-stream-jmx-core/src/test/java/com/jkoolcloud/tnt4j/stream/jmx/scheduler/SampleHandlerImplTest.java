@@ -0,0 +1,187 @@
+/*
+ * Copyright 2015-2018 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.stream.jmx.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.jkoolcloud.tnt4j.core.Activity;
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.core.Snapshot;
+import com.jkoolcloud.tnt4j.stream.jmx.TimingHarness;
+import com.jkoolcloud.tnt4j.stream.jmx.conditions.AttributeSample;
+import com.jkoolcloud.tnt4j.stream.jmx.core.SampleContext;
+import com.jkoolcloud.tnt4j.stream.jmx.core.SampleListener;
+
+/**
+ * Checks {@link SampleHandlerImpl} sample listeners dispatching and measures its cost for 1, 3 and 10 registered
+ * listeners.
+ *
+ * @version $Revision: 1 $
+ */
+public class SampleHandlerImplTest {
+	private static final String INC_FILTER = "java.lang:*";
+	private static final int[] LISTENER_COUNTS = { 1, 3, 10 };
+
+	@Test
+	public void testListenersDispatch() {
+		SampleHandlerImpl handler = new SampleHandlerImpl(ManagementFactory.getPlatformMBeanServer(), INC_FILTER, null);
+		CountingListener[] listeners = new CountingListener[3];
+		for (int i = 0; i < listeners.length; i++) {
+			listeners[i] = new CountingListener();
+			handler.addListener(listeners[i]);
+		}
+
+		Activity activity = runCycle(handler);
+		assertTrue("Platform MBeans shall be sampled", activity.getSnapshotCount() > 0);
+		for (CountingListener listener : listeners) {
+			assertTrue(listener.registerCount > 0);
+			assertTrue(listener.postSampleCount > 0);
+			assertEquals(1, listener.preActivityCount);
+			assertEquals(1, listener.postActivityCount);
+			assertEquals(listeners[0].postSampleCount, listener.postSampleCount);
+			assertEquals(listeners[0].completeCount, listener.completeCount);
+		}
+
+		handler.removeListener(listeners[1]);
+		runCycle(handler);
+		assertEquals(1, listeners[1].postActivityCount);
+		assertEquals(2, listeners[0].postActivityCount);
+		assertEquals(2, listeners[2].postActivityCount);
+		assertEquals(listeners[0].postSampleCount, listeners[2].postSampleCount);
+		assertTrue(listeners[0].postSampleCount > listeners[1].postSampleCount);
+	}
+
+	@Test
+	public void testListenersTiming() throws Exception {
+		System.out.println("Sampling cycle of " + INC_FILTER + " MBeans:");
+		for (int lCount : LISTENER_COUNTS) {
+			final SampleHandlerImpl handler = new SampleHandlerImpl(ManagementFactory.getPlatformMBeanServer(),
+					INC_FILTER, null);
+			for (int i = 0; i < lCount; i++) {
+				handler.addListener(new CountingListener());
+			}
+			TimingHarness.measure(lCount + " listener(s)", 20, new TimingHarness.Task() {
+				@Override
+				public Object run() {
+					return runCycle(handler);
+				}
+			});
+		}
+
+		System.out.println("Per attribute listeners dispatch:");
+		for (int lCount : LISTENER_COUNTS) {
+			final List<SampleListener> lList = Collections.synchronizedList(new ArrayList<SampleListener>());
+			for (int i = 0; i < lCount; i++) {
+				lList.add(new CountingListener());
+			}
+			final SampleListener[] lArray = lList.toArray(new SampleListener[lList.size()]);
+
+			TimingHarness.measure(lCount + " listener(s), synchronized list", 100000, new TimingHarness.Task() {
+				@Override
+				public Object run() throws Exception {
+					synchronized (lList) {
+						for (SampleListener lst : lList) {
+							lst.post(null, (AttributeSample) null);
+						}
+					}
+					return lList;
+				}
+			});
+			TimingHarness.measure(lCount + " listener(s), copy-on-write array", 100000, new TimingHarness.Task() {
+				@Override
+				public Object run() throws Exception {
+					for (SampleListener lst : lArray) {
+						lst.post(null, (AttributeSample) null);
+					}
+					return lArray;
+				}
+			});
+		}
+	}
+
+	private static Activity runCycle(SampleHandlerImpl handler) {
+		Activity activity = new Activity("test", "SampleHandlerImplTest");
+		handler.started(activity);
+		handler.stopped(activity);
+		return activity;
+	}
+
+	private static class CountingListener implements SampleListener {
+		private long registerCount;
+		private long postSampleCount;
+		private long completeCount;
+		private long preActivityCount;
+		private long postActivityCount;
+
+		@Override
+		public void register(SampleContext context, ObjectName oname) {
+			registerCount++;
+		}
+
+		@Override
+		public void unregister(SampleContext context, ObjectName oname) {
+		}
+
+		@Override
+		public void pre(SampleContext context, AttributeSample sample) {
+		}
+
+		@Override
+		public void post(SampleContext context, AttributeSample sample) {
+			postSampleCount++;
+		}
+
+		@Override
+		public void complete(SampleContext context, Activity activity, ObjectName name, MBeanInfo info,
+				Snapshot snapshot) {
+			completeCount++;
+		}
+
+		@Override
+		public void error(SampleContext context, AttributeSample sample, OpLevel level) {
+		}
+
+		@Override
+		public void error(SampleContext context, Throwable ex) {
+		}
+
+		@Override
+		public void pre(SampleContext context, Activity activity) {
+			preActivityCount++;
+		}
+
+		@Override
+		public void post(SampleContext context, Activity activity) {
+			postActivityCount++;
+		}
+
+		@Override
+		public void getStats(SampleContext context, Map<String, Object> stats) {
+		}
+	}
+}
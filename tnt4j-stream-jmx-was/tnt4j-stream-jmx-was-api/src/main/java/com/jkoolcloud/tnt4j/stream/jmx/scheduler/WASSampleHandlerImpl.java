@@ -18,7 +18,9 @@ package com.jkoolcloud.tnt4j.stream.jmx.scheduler;
 
 import java.security.PrivilegedExceptionAction;
 
+import javax.management.AttributeList;
 import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
 
 import com.jkoolcloud.tnt4j.stream.jmx.conditions.AttributeSample;
 import com.jkoolcloud.tnt4j.stream.jmx.utils.WASSecurityHelper;
@@ -41,6 +43,11 @@ public class WASSampleHandlerImpl extends SampleHandlerImpl {
 		return WASSecurityHelper.doPrivilegedAction(new SamplePrivilegedAction(sample));
 	}
 
+	@Override
+	protected AttributeList getAttributes(ObjectName name, String[] attrNames) throws Exception {
+		return WASSecurityHelper.doPrivilegedAction(new BulkSamplePrivilegedAction(name, attrNames));
+	}
+
 	private static class SamplePrivilegedAction implements PrivilegedExceptionAction<Object> {
 		private final AttributeSample sample;
 
@@ -53,4 +60,19 @@ public class WASSampleHandlerImpl extends SampleHandlerImpl {
 			return sample.sample();
 		}
 	}
+
+	private class BulkSamplePrivilegedAction implements PrivilegedExceptionAction<AttributeList> {
+		private final ObjectName name;
+		private final String[] attrNames;
+
+		BulkSamplePrivilegedAction(ObjectName name, String[] attrNames) {
+			this.name = name;
+			this.attrNames = attrNames;
+		}
+
+		@Override
+		public AttributeList run() throws Exception {
+			return WASSampleHandlerImpl.super.getAttributes(name, attrNames);
+		}
+	}
 }